@@ -1,20 +1,36 @@
 package controllers;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
+import models.Board;
 import models.Edge;
+import models.GameEventBus;
 import models.GameState;
+import models.MemoryFootprint;
 import models.Node;
+import models.Replay;
 import student.MySpaceship;
+import utils.TimedExecutor;
 
 public class BenchmarkDriver extends Driver {
 	public static final long SEED = 91;
 	public static final int N_TRIALS = 40;
 
 	public BenchmarkDriver(long seed) {
-		super(seed, new MySpaceship());
+		super(seed, new MySpaceship(), false);
 	}
 
+	/** Do not listen to the game at all: its events are never even created. */
+	@Override protected void listen(GameEventBus bus) {}
+
 	@Override public void beginRescueStage() {}
 	@Override public void beginReturnStage() {}
 	@Override public void setCumulativeDistance(int d) {}
@@ -25,26 +41,105 @@ public class BenchmarkDriver extends Driver {
 	@Override public void setSpeed(double s) {}
 	@Override public void grabSpeedUpgrade(Node n) {}
 
+	/**
+	 * Run N_TRIALS games and print the average score. With -m, also print the
+	 * estimated memory footprint of each board and game. With -r, also replay
+	 * the move log of each game on a fresh board and check that the replay
+	 * gets the same score. With -c, limit each stage by the CPU time it uses
+	 * rather than the wall-clock time, so that a game's outcome does not depend
+	 * on how busy the machine is, and print the total wall-clock and CPU time
+	 * the stages took. With -a, print the total number of bytes the stages
+	 * allocated. The games run in parallel, one per processor, but their
+	 * results are reported and summed in seed order, so the output does not
+	 * depend on scheduling.
+	 */
 	public static void main(String[] args) {
+		boolean showMemory = Arrays.asList(args).contains("-m");
+		final boolean replay = Arrays.asList(args).contains("-r");
+		final boolean cpuBudgets = Arrays.asList(args).contains("-c");
+		final boolean showAllocation = Arrays.asList(args).contains("-a");
+		if (showAllocation && !TimedExecutor.allocationSupported()) {
+			System.err.println("Error, -a needs thread allocation, which this JVM cannot measure");
+			System.exit(1);
+		}
 		Random r = new Random(SEED);
-		double sum = 0;
+		long[] seeds = new long[N_TRIALS];
+		for (int i = 0; i < N_TRIALS; i++) {
+			seeds[i] = r.nextLong();
+		}
+
+		ExecutorService pool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+		List<Future<BenchmarkDriver>> games = new ArrayList<>();
+		for (final long s : seeds) {
+			games.add(pool.submit(new Callable<BenchmarkDriver>() {
+				@Override
+				public BenchmarkDriver call() {
+					BenchmarkDriver b = new BenchmarkDriver(s);
+					if (cpuBudgets) {
+						b.getGameState().setCpuTimeBudgets(true);
+					}
+					if (showAllocation) {
+						b.getGameState().measureAllocation();
+					}
+					b.runGame();
+					if (replay) {
+						GameState gs = b.getGameState();
+						Replay rp = Replay.of(Board.randomBoard(s), gs.getMoveLog());
+						if (rp.getScore() != gs.getScore()) {
+							throw new IllegalStateException("Replay of seed " + s + " scored "
+									+ rp.getScore() + " instead of " + gs.getScore());
+						}
+					}
+					return b;
+				}
+			}));
+		}
 
+		double sum = 0;
+		long wallTime = 0;
+		long cpuTime = 0;
+		long allocated = 0;
+		int unmeasured = 0; // Stages whose allocation could not be measured
 		for (int i = 0; i < N_TRIALS; i++) {
-			long s = r.nextLong();
-			Driver.shouldPrint = false;
-			BenchmarkDriver b = new BenchmarkDriver(s);
-			b.runGame();
-			Driver.shouldPrint = true;
+			BenchmarkDriver b;
+			try {
+				b = games.get(i).get();
+			} catch (InterruptedException | ExecutionException e) {
+				System.err.println("Game with seed " + seeds[i] + " could not be run: " + e);
+				System.exit(1);
+				return;
+			}
 			GameState gs = b.getGameState();
+			if (showMemory) {
+				System.out.println(MemoryFootprint.of(b.getBoard()) + "; "
+						+ MemoryFootprint.of(gs));
+			}
 			if (gs.getRescueSucceeded() && gs.getReturnSucceeded()) {
 				sum += gs.getScore();
+				wallTime += gs.getRescueWallTime() + gs.getReturnWallTime();
+				cpuTime += gs.getRescueCpuTime() + gs.getReturnCpuTime();
+				for (long a : new long[] { gs.getRescueAllocatedBytes(), gs.getReturnAllocatedBytes() }) {
+					if (a >= 0) {
+						allocated += a;
+					} else {
+						unmeasured++;
+					}
+				}
 			} else {
-				Driver.errPrintln("Your Spaceship failed for seed " + s);
+				System.err.println("Your Spaceship failed for seed " + seeds[i]);
 				System.exit(1);
 			}
 		}
 
-		Driver.outPrintln(sum / N_TRIALS + "");
+		if (cpuBudgets) {
+			System.out.println("Stages took " + wallTime / 1000000 + " ms wall-clock, "
+					+ cpuTime / 1000000 + " ms CPU");
+		}
+		if (showAllocation) {
+			System.out.println("Stages allocated " + allocated + " bytes"
+					+ (unmeasured == 0 ? "" : " (" + unmeasured + " stages not measured)"));
+		}
+		System.out.println(sum / N_TRIALS + "");
 		System.exit(0);
 	}
 }
@@ -6,7 +6,7 @@ import student.MySpaceship;
 /** An instance runs the game and links the state to the user interface. */
 public abstract class Driver {
 
-	public static boolean shouldPrint= true; // Print to console iff true
+	private final boolean shouldPrint; // Print to console iff true
 
 	private long seed; // The seed used to generate this game
 
@@ -28,6 +28,15 @@ public abstract class Driver {
 
 	/** Constructor: an instance with seed s and spaceship sp */
 	public Driver(long s, Spaceship sp) {
+		this(s, sp, true);
+	}
+
+	/**
+	 * Constructor: an instance with seed s and spaceship sp that prints to the
+	 * console iff print is true.
+	 */
+	public Driver(long s, Spaceship sp, boolean print) {
+		shouldPrint= print;
 		setupState(s, sp);
 	}
 
@@ -37,14 +46,77 @@ public abstract class Driver {
 		seed= s;
 		spaceShip= sp;
 		board= Board.randomBoard(s);
-		gameState= new GameState(this, board, spaceShip);
+		newGame();
+	}
+
+	/** Start a new game on board with spaceShip, listened to by this Driver. */
+	private void newGame() {
+		gameState= createGameState(board, spaceShip);
+		listen(gameState.getEventBus());
+	}
+
+	/**
+	 * Subscribe this Driver to the events of a new game, published on bus. By
+	 * default, it listens synchronously. Subclasses override this to listen
+	 * on their own thread, or not at all.
+	 */
+	protected void listen(GameEventBus bus) {
+		bus.subscribe(listener());
+	}
+
+	/**
+	 * Return a GameListener that passes each event on to the corresponding
+	 * method of this Driver.
+	 */
+	protected GameListener listener() {
+		return new GameListener() {
+			@Override
+			public void onEvent(GameEvent e) {
+				switch (e.getType()) {
+				case GameEvent.RESCUE_STAGE:
+					beginRescueStage();
+					break;
+				case GameEvent.RETURN_STAGE:
+					beginReturnStage();
+					break;
+				case GameEvent.MOVE:
+					setNodeAndEdge(e.getNode(), e.getEdge());
+					moveShipAlong(e.getEdge());
+					break;
+				case GameEvent.GRAB:
+					grabSpeedUpgrade(e.getNode());
+					break;
+				case GameEvent.DISTANCE:
+					setCumulativeDistance(e.getInt());
+					break;
+				case GameEvent.TIME:
+					setTime(e.getDouble());
+					break;
+				case GameEvent.HP:
+					setHp(e.getInt());
+					break;
+				case GameEvent.SPEED:
+					setSpeed(e.getDouble());
+					break;
+				}
+			}
+		};
+	}
+
+	/**
+	 * Return a new GameState for Board b and Spaceship sp, run by this Driver.
+	 * Subclasses override this to configure their games, e.g. with other
+	 * timeouts.
+	 */
+	protected GameState createGameState(Board b, Spaceship sp) {
+		return new GameState(this, b, sp);
 	}
 
 	/** Create a new Board and GameState using the current seed. */
 	protected void reset() {
 		gameState.terminate();
 		board= Board.randomBoard(seed);
-		gameState= new GameState(this, board, spaceShip);
+		newGame();
 	}
 
 	/**
@@ -54,7 +126,7 @@ public abstract class Driver {
 		seed= s;
 		gameState.terminate();
 		board= Board.randomBoard(seed);
-		gameState= new GameState(this, board, spaceShip);
+		newGame();
 	}
 
 	/** Return this Driver's GameState. */
@@ -83,14 +155,19 @@ public abstract class Driver {
 		return spaceShip;
 	}
 
+	/** Return true iff this Driver prints to the console. */
+	public boolean getShouldPrint() {
+		return shouldPrint;
+	}
+
 	/** Print to the standard output stream if shouldPrint is set. */
-	public static void outPrintln(String s) {
+	public void outPrintln(String s) {
 		if (shouldPrint)
 			System.out.println(s);
 	}
 
 	/** Print to the standard error stream if shouldPrint is set. */
-	public static void errPrintln(String s) {
+	public void errPrintln(String s) {
 		if (shouldPrint)
 			System.err.println(s);
 	}
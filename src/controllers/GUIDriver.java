@@ -1,12 +1,17 @@
 package controllers;
 
+import models.Board;
 import models.Edge;
+import models.GameEventBus;
+import models.GameState;
 import models.Node;
+import models.Spaceship;
 import views.GUI;
 import views.components.Line;
 import views.components.Planet;
 import views.components.Ship;
 import views.panels.SidePanel;
+import utils.TimedExecutor;
 import javax.swing.*;
 import javax.swing.event.ChangeEvent;
 import javax.swing.event.ChangeListener;
@@ -17,11 +22,20 @@ import java.util.List;
 import java.util.Map;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 /** An instance runs the game and displays the state in a GUI. */
 public class GUIDriver extends Driver {
+	private static final long GUI_TIMEOUT= 10; // Timeout of each stage, in minutes
+
+	/*
+	 * Runs the games started from the menu, one at a time. Not the shared
+	 * executor: a game waits there for its own stages, so it must not hold
+	 * one of its threads. A reset game is terminated, so it ends promptly.
+	 */
+	private static final TimedExecutor gameRunner= new TimedExecutor(1, "runGame");
+
 	private GUI gui;
 	private HashMap<Planet, Node> circleToNode= new HashMap<Planet, Node>();
 	private HashMap<Node, Planet> nodeToCircle= new HashMap<Node, Planet>();
@@ -56,6 +70,24 @@ public class GUIDriver extends Driver {
 		return gui;
 	}
 
+	/**
+	 * Listen to the game on a thread of its own, so that the game does not wait
+	 * for the ship to be animated along each edge.
+	 */
+	@Override
+	protected void listen(GameEventBus bus) {
+		bus.subscribeAsync(listener(), "gui-events");
+	}
+
+	/**
+	 * Return a GameState with generous timeouts, since a game in the GUI is
+	 * slowed down by its animations.
+	 */
+	@Override
+	protected GameState createGameState(Board b, Spaceship sp) {
+		return new GameState(this, b, sp, GUI_TIMEOUT, GUI_TIMEOUT, TimeUnit.MINUTES);
+	}
+
 	/** See {@link Driver#reset()} */
 	@Override
 	protected void reset() {
@@ -182,8 +214,7 @@ public class GUIDriver extends Driver {
 							return "runGame()";
 						}
 					};
-					ExecutorService executor= Executors.newSingleThreadExecutor();
-					executor.submit(runGame);
+					gameRunner.submit(Executors.callable(runGame));
 				} else {
 					errPrintln("Game has already started.");
 				}
@@ -329,10 +360,10 @@ public class GUIDriver extends Driver {
 				seed= Long.parseLong(argList.get(seedIndex + 1));
 				seedGiven= true;
 			} catch (NumberFormatException e) {
-				Driver.errPrintln("Error, -s must be followed by a numerical seed");
+				System.err.println("Error, -s must be followed by a numerical seed");
 				return;
 			} catch (ArrayIndexOutOfBoundsException e) {
-				Driver.errPrintln("Error, -s must be followed by a seed");
+				System.err.println("Error, -s must be followed by a seed");
 				return;
 			}
 		}
@@ -1,18 +1,51 @@
 package controllers;
 
 import models.Edge;
+import models.GameEvent;
+import models.GameEventBus;
+import models.GameListener;
+import models.GameState;
+import models.MemoryFootprint;
 import models.Node;
 import models.Spaceship;
+import student.MySpaceship;
+import utils.TraceWriter;
 
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.Arrays;
 import java.util.List;
 import java.util.ArrayList;
 
 /**
  * An instance runs the game and prints the state to the console. This will be
- * used to grade submissions.
+ * used to grade submissions. <br>
+ * <br>
+ * How much is printed depends on the verbosity: QUIET prints only the score
+ * and errors, STAGES adds the stages, upgrades, HP and speed, and MOVES (the
+ * default) adds every move, distance and time. The state is printed either
+ * as sentences or, in trace mode, as tab-separated lines such as
+ * "MOVE\t3\t17\t250" (type, then fields), which are much cheaper to write and
+ * to parse. Output can go through a TraceWriter, which buffers it.
  */
 public class HeadlessDriver extends Driver {
+	/* Verbosity levels */
+	public static final int QUIET= 0;
+	public static final int STAGES= 1;
+	public static final int MOVES= 2;
+
+	private int verbosity= MOVES; // How much to print
+
+	private boolean trace; // Print tab-separated lines iff true
+
+	/*
+	 * Where to print; null for System.out. A TraceWriter is not thread-safe,
+	 * and a stage that timed out may still publish events from its own thread
+	 * while the driver prints, so every line written to out, and every flush,
+	 * holds out's lock.
+	 */
+	private TraceWriter out;
+
 	/** Constructor */
 	public HeadlessDriver() {
 		super();
@@ -28,39 +61,151 @@ public class HeadlessDriver extends Driver {
 		super(s, sp);
 	}
 
+	/**
+	 * Constructor: an instance using seed s and space ship sp that prints to
+	 * w (System.out if w is null) with verbosity v, as tab-separated lines iff
+	 * tsv is true.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if tsv is true and w is null.
+	 */
+	public HeadlessDriver(long s, Spaceship sp, int v, boolean tsv, TraceWriter w) {
+		super(s, sp);
+		if (tsv && w == null)
+			throw new IllegalArgumentException("A trace needs a TraceWriter");
+		verbosity= v;
+		trace= tsv;
+		out= w;
+	}
+
+	/**
+	 * Listen to the game with a listener that prints each event as this
+	 * driver's verbosity and mode say, skipping events it would not print
+	 * before any formatting. (This is called by the Driver constructor, before
+	 * the verbosity and mode are set, so the listener reads them per event.)
+	 */
+	@Override
+	protected void listen(GameEventBus bus) {
+		if (!getShouldPrint())
+			return;
+		final GameListener sentences= listener();
+		bus.subscribe(new GameListener() {
+			@Override
+			public void onEvent(GameEvent e) {
+				int t= e.getType();
+				boolean move= t == GameEvent.MOVE || t == GameEvent.DISTANCE || t == GameEvent.TIME;
+				if (verbosity < (move ? MOVES : STAGES))
+					return;
+				if (trace)
+					printTrace(e);
+				else
+					sentences.onEvent(e);
+			}
+		});
+	}
+
+	/** Print e as a tab-separated line: its type, then its fields. */
+	private void printTrace(GameEvent e) {
+		synchronized (out) {
+			switch (e.getType()) {
+			case GameEvent.RESCUE_STAGE:
+				out.print("RESCUE");
+				break;
+			case GameEvent.RETURN_STAGE:
+				out.print("RETURN");
+				break;
+			case GameEvent.MOVE:
+				Edge edge= e.getEdge();
+				out.print("MOVE").tab().print(e.getNode().getId()).tab()
+						.print(edge.getOther(e.getNode()).getId()).tab().print(edge.length);
+				break;
+			case GameEvent.GRAB:
+				out.print("GRAB").tab().print(e.getNode().getId());
+				break;
+			case GameEvent.DISTANCE:
+				out.print("DISTANCE").tab().print(e.getInt());
+				break;
+			case GameEvent.TIME:
+				out.print("TIME").tab().print(e.getDouble());
+				break;
+			case GameEvent.HP:
+				out.print("HP").tab().print(e.getInt());
+				break;
+			case GameEvent.SPEED:
+				out.print("SPEED").tab().print(e.getDouble());
+				break;
+			}
+			out.newline();
+		}
+	}
+
+	/** Print s if this driver prints at verbosity v. */
+	private void print(int v, String s) {
+		if (verbosity >= v)
+			outPrintln(s);
+	}
+
+	/** Print s to this driver's output if shouldPrint is set. */
+	@Override
+	public void outPrintln(String s) {
+		if (out == null) {
+			super.outPrintln(s);
+		} else if (getShouldPrint()) {
+			synchronized (out) {
+				out.println(s);
+			}
+		}
+	}
+
+	/**
+	 * Print s to the standard error stream if shouldPrint is set, after
+	 * writing out the buffered output so that the two stay in order.
+	 */
+	@Override
+	public void errPrintln(String s) {
+		if (out == null) {
+			super.errPrintln(s);
+			return;
+		}
+		synchronized (out) {
+			out.flush();
+			super.errPrintln(s);
+		}
+	}
+
 	/** See {@link Driver#moveShipAlong(Edge)} */
 	public void moveShipAlong(Edge e) {
-		outPrintln("Ship is along the edge: " + e.toString());
+		print(MOVES, "Ship is along the edge: " + e.toString());
 	}
 
 	@Override
 	public void beginRescueStage() {
-		outPrintln("=== Beginning Rescue ===");
+		print(STAGES, "=== Beginning Rescue ===");
 	}
 
 	@Override
 	public void beginReturnStage() {
-		outPrintln("=== Beginning Return ===");
+		print(STAGES, "=== Beginning Return ===");
 	}
 
 	@Override
 	public void setTime(double t) {
-		outPrintln("Total time taken is now: " + t);
+		print(MOVES, "Total time taken is now: " + t);
 	}
 
 	@Override
 	public void setHp(int Hp) {
-		outPrintln("Total HP is now: " + Hp);
+		print(STAGES, "Total HP is now: " + Hp);
 	}
 
 	@Override
 	public void setSpeed(double speed) {
-		outPrintln("Speed is now " + speed);
+		print(STAGES, "Speed is now " + speed);
 	}
 
 	@Override
 	public void grabSpeedUpgrade(Node n) {
-		outPrintln("Speed upgrade picked up on Planet " + n.name);
+		print(STAGES, "Speed upgrade picked up on Planet " + n.name);
 	}
 
 	@Override
@@ -71,9 +216,26 @@ public class HeadlessDriver extends Driver {
 	public void setNodeAndEdge(Node n, Edge e) {
 	}
 
+	/** Return time t, in ns, as a number of ms, or "-" if t is negative. */
+	private static String millis(long t) {
+		return t < 0 ? "-" : t / 1000000 + " ms";
+	}
+
+	/** Return n as a number of bytes, or "-" if n is negative. */
+	private static String bytes(long n) {
+		return n < 0 ? "-" : n + " bytes";
+	}
+
 	/**
 	 * Run the Space Adventure game without a GUI. The handout says what the
-	 * args are.
+	 * args are. In addition: -v level sets the verbosity (0 quiet, 1 stages, 2
+	 * moves; default 2), -t prints a tab-separated trace instead of sentences,
+	 * -o file prints to file instead of the console, -c limits each stage
+	 * by the CPU time it uses instead of the wall-clock time (and prints the
+	 * wall-clock and CPU time each stage took), -a bytes fails a stage that
+	 * allocates more than bytes bytes (a negative bytes sets no limit) and
+	 * prints how many bytes each stage allocated, and -m also prints
+	 * the estimated memory footprint of the board and the game.
 	 */
 	public static void main(String[] args) {
 		List<String> argList= new ArrayList<String>(Arrays.asList(args));
@@ -85,16 +247,86 @@ public class HeadlessDriver extends Driver {
 				seed= Long.parseLong(argList.get(seedIndex + 1));
 				seedGiven= true;
 			} catch (NumberFormatException e) {
-				Driver.errPrintln("Error, -s must be followed by a numerical seed");
+				System.err.println("Error, -s must be followed by a numerical seed");
+				return;
+			} catch (IndexOutOfBoundsException e) {
+				System.err.println("Error, -s must be followed by a seed");
 				return;
-			} catch (ArrayIndexOutOfBoundsException e) {
-				Driver.errPrintln("Error, -s must be followed by a seed");
+			}
+		}
+
+		int verbosity= MOVES;
+		int verbosityIndex= argList.indexOf("-v");
+		if (verbosityIndex >= 0) {
+			try {
+				verbosity= Integer.parseInt(argList.get(verbosityIndex + 1));
+			} catch (NumberFormatException | IndexOutOfBoundsException e) {
+				System.err.println("Error, -v must be followed by 0, 1 or 2");
 				return;
 			}
 		}
 
-		HeadlessDriver driver= seedGiven ? new HeadlessDriver(seed) : new HeadlessDriver();
+		long budget= -1;
+		int budgetIndex= argList.indexOf("-a");
+		if (budgetIndex >= 0) {
+			try {
+				budget= Long.parseLong(argList.get(budgetIndex + 1));
+			} catch (NumberFormatException | IndexOutOfBoundsException e) {
+				System.err.println("Error, -a must be followed by a number of bytes");
+				return;
+			}
+		}
+
+		TraceWriter w;
+		int fileIndex= argList.indexOf("-o");
+		try {
+			w= fileIndex >= 0 ? TraceWriter.toFile(Paths.get(argList.get(fileIndex + 1)))
+					: TraceWriter.toStdout();
+		} catch (IOException | IndexOutOfBoundsException e) {
+			System.err.println("Error, -o must be followed by a writable file");
+			return;
+		}
+
+		if (!seedGiven)
+			seed= (long) (Math.random() * Long.MAX_VALUE);
+		HeadlessDriver driver= new HeadlessDriver(seed, new MySpaceship(), verbosity,
+				argList.contains("-t"), w);
+		if (argList.contains("-c")) {
+			try {
+				driver.getGameState().setCpuTimeBudgets(true);
+			} catch (UnsupportedOperationException e) {
+				System.err.println("Error, -c needs thread CPU time, which this JVM cannot measure");
+				return;
+			}
+		}
+		if (budgetIndex >= 0) {
+			try {
+				driver.getGameState().measureAllocation();
+				driver.getGameState().setAllocationBudget(budget);
+			} catch (UnsupportedOperationException e) {
+				System.err.println("Error, -a needs thread allocation, which this JVM cannot measure");
+				return;
+			}
+		}
 		driver.runGame();
+		GameState gs= driver.getGameState();
+		if (argList.contains("-m")) {
+			driver.outPrintln(MemoryFootprint.of(driver.getBoard()).toString());
+			driver.outPrintln(MemoryFootprint.of(gs).toString());
+		}
+		if (argList.contains("-c")) {
+			driver.outPrintln("Rescue took " + millis(gs.getRescueWallTime()) + " wall-clock, "
+					+ millis(gs.getRescueCpuTime()) + " CPU; return took "
+					+ millis(gs.getReturnWallTime()) + " wall-clock, "
+					+ millis(gs.getReturnCpuTime()) + " CPU");
+		}
+		if (budgetIndex >= 0) {
+			driver.outPrintln("Rescue allocated " + bytes(gs.getRescueAllocatedBytes())
+					+ "; return allocated " + bytes(gs.getReturnAllocatedBytes()));
+		}
+		synchronized (w) {
+			w.flush();
+		}
 		System.exit(0);
 	}
-}
\ No newline at end of file
+}
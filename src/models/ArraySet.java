@@ -0,0 +1,47 @@
+package models;
+
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * An unmodifiable Set backed by an array of distinct elements that must never
+ * change once the set is created. Membership is a linear scan; subclasses
+ * that can answer contains() faster should override it.
+ */
+class ArraySet<E> extends AbstractSet<E> {
+
+	private final E[] elements; // The elements of this set; never modified
+
+	/**
+	 * Constructor: a set of the elements of elems. Precondition: the elements
+	 * of elems are distinct and non-null, and elems is never modified.
+	 */
+	ArraySet(E[] elems) {
+		elements= elems;
+	}
+
+	@Override
+	public int size() {
+		return elements.length;
+	}
+
+	@Override
+	public Iterator<E> iterator() {
+		return new Iterator<E>() {
+			private int next= 0; // Index of the next element to return
+
+			@Override
+			public boolean hasNext() {
+				return next < elements.length;
+			}
+
+			@Override
+			public E next() {
+				if (next >= elements.length)
+					throw new NoSuchElementException();
+				return elements[next++];
+			}
+		};
+	}
+}
@@ -1,5 +1,6 @@
 package models;
 
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Set;
 import java.util.Random;
@@ -9,7 +10,13 @@ import java.util.Collections;
 /**
  * A Board represents the physical layout of a game. It has nodes, edges, and a
  * reference to the game state that it's attached to. Boards are randomly
- * generated from a seed.
+ * generated from a seed. <br>
+ * <br>
+ * Generation ends by freezing the board: its nodes, edges, coordinates and
+ * hostility never change afterwards, and its collections are handed out as
+ * cached immutable views. A frozen board may therefore be read by any number
+ * of threads without locking. (The only state that still changes is the
+ * speed upgrade of a Node, which the game played on the board picks up.)
  */
 public final class Board {
 
@@ -23,17 +30,32 @@ public final class Board {
 	private double furthestNodeDistance; // The distance of the node furthest
 											// from target
 
-	private HashSet<Edge> edges; // All edges in this board
+	private HashSet<Edge> edges; // All edges in this board; null once frozen
 
 	protected int minLength; // Min length among all edges
 
 	protected int maxLength; // Max length among all edges
 
-	private HashSet<Node> nodes; // All nodes in this board
+	private HashSet<Node> nodes; // All nodes in this board; null once frozen
+
+	private EdgeIndex edgeIndex; // The edges in this board, by their exits
 
 	private int width; // width and height of this GUI
 	private int height;
 
+	private Node[] nodeArray; // All nodes, indexed by ID; set by freeze()
+
+	private Set<Node> nodeView; // Immutable view of nodeArray
+	private Set<Edge> edgeView; // Immutable view of all edges
+
+	private BoardGraph graph; // Snapshot of nodes and edges, made by freeze()
+
+	/*
+	 * True once freeze() has completed. Volatile, and written last by
+	 * freeze(), so a thread that sees it true also sees the frozen state.
+	 */
+	private volatile boolean frozen;
+
 	/**
 	 * Return the volume of a ping from the crashed spaceship's distress beacon
 	 * to node n. This is inversely correlated with the distance between n and
@@ -59,16 +81,26 @@ public final class Board {
 
 	/** Return an immutable Set containing all the Nodes in this board. */
 	public Set<Node> getNodes() {
+		if (frozen)
+			return nodeView;
 		return Collections.unmodifiableSet(nodes);
 	}
 
-	/** Return the HashSet of all Nodes in this board */
-	HashSet<Node> getMutableNodes() {
+	/**
+	 * Return the HashSet of all Nodes in this board
+	 *
+	 * @throws IllegalStateException
+	 *             if this board is frozen
+	 */
+	HashSet<Node> getMutableNodes() throws IllegalStateException {
+		checkMutable();
 		return nodes;
 	}
 
 	/** Return the number of Nodes in this board. */
 	public int getNodesSize() {
+		if (frozen)
+			return nodeArray.length;
 		return nodes.size();
 	}
 
@@ -76,14 +108,97 @@ public final class Board {
 	 * Return the Node with ID id in this board if it exists, null otherwise.
 	 */
 	public Node getNode(long id) {
+		if (frozen)
+			return id < 0 || id >= nodeArray.length ? null : nodeArray[(int) id];
+
 		for (Node n : nodes) {
 			if (n.getId() == id)
 				return n;
 		}
-
 		return null;
 	}
 
+	/**
+	 * Return the CSR snapshot of the nodes and edges of this board, or null if
+	 * the board is not frozen yet.
+	 */
+	public BoardGraph getGraph() {
+		if (!frozen)
+			return null;
+		return graph;
+	}
+
+	/** Return true iff this board has been frozen. */
+	public boolean isFrozen() {
+		return frozen;
+	}
+
+	/**
+	 * Freeze this board: convert its collections to compact immutable arrays,
+	 * cache views of them and take the BoardGraph snapshot. After this, any
+	 * attempt to add or remove nodes or edges, or to change the dimensions of
+	 * the board, throws an IllegalStateException. Does nothing if the board
+	 * is already frozen.
+	 *
+	 * @throws IllegalStateException
+	 *             if the IDs of the nodes are not exactly 0 .. n-1
+	 */
+	synchronized void freeze() throws IllegalStateException {
+		if (frozen)
+			return;
+
+		nodeArray= new Node[nodes.size()];
+		for (Node n : nodes) {
+			long id= n.getId();
+			if (id < 0 || id >= nodeArray.length || nodeArray[(int) id] != null)
+				throw new IllegalStateException("Node IDs are not dense: " + id);
+			nodeArray[(int) id]= n;
+			n.freeze();
+		}
+		nodeView= new ArraySet<Node>(nodeArray) {
+			@Override
+			public boolean contains(Object o) {
+				return o instanceof Node && getNode(((Node) o).getId()) != null;
+			}
+		};
+
+		Edge[] edgeArray= edges.toArray(new Edge[edges.size()]);
+		edgeView= new ArraySet<Edge>(edgeArray) {
+			@Override
+			public boolean contains(Object o) {
+				if (!(o instanceof Edge))
+					return false;
+				Edge e= (Edge) o;
+				return getEdge(e.getFirstExit().getId(), e.getSecondExit().getId()) != null;
+			}
+		};
+
+		// Pings and topology no longer change, so neither do the neighbor
+		// statuses: make one NodeStatus per node and share it among its neighbors
+		NodeStatus[] statuses= new NodeStatus[nodeArray.length];
+		for (Node n : nodeArray) {
+			statuses[(int) n.getId()]= new NodeStatus(n.getId(), getPing(n));
+		}
+		for (Node n : nodeArray) {
+			NodeStatus[] s= new NodeStatus[n.getExitsSize()];
+			for (int i= 0; i < s.length; i++) {
+				s[i]= statuses[(int) n.getNeighborId(i)];
+			}
+			n.setNeighborStatuses(Collections.unmodifiableList(Arrays.asList(s)));
+		}
+
+		graph= new BoardGraph(nodeArray, earth);
+		nodes= null;
+		edges= null;
+		frozen= true;
+	}
+
+	/** Throw an IllegalStateException if this board is frozen. */
+	private void checkMutable() throws IllegalStateException {
+		if (frozen)
+			throw new IllegalStateException("Board " + seed + " is frozen");
+	}
+
 	/** Return the starting Earth Node. */
 	public Node getEarth() {
 		return earth;
@@ -102,6 +217,7 @@ public final class Board {
 	 *             if n is not in this board
 	 */
 	void setEarth(Node n) throws IllegalArgumentException {
+		checkMutable();
 		if (!nodes.contains(n))
 			throw new IllegalArgumentException("Can't find Earth!");
 		earth= n;
@@ -114,6 +230,7 @@ public final class Board {
 	 *             if n is not in this board
 	 */
 	void setTarget(Node n) throws IllegalArgumentException {
+		checkMutable();
 		if (!nodes.contains(n))
 			throw new IllegalArgumentException("Can't find target!");
 		target= n;
@@ -121,16 +238,78 @@ public final class Board {
 
 	/** Return the immutable Set of Edges in this board. */
 	public Set<Edge> getEdges() {
+		if (frozen)
+			return edgeView;
 		return Collections.unmodifiableSet(edges);
 	}
 
-	/** Return the set of Edges in this board. */
-	HashSet<Edge> getMutableEdges() {
+	/**
+	 * Return the set of Edges in this board.
+	 *
+	 * @throws IllegalStateException
+	 *             if this board is frozen
+	 */
+	HashSet<Edge> getMutableEdges() throws IllegalStateException {
+		checkMutable();
 		return edges;
 	}
 
+	/**
+	 * Add e to this board and to the exits of both of its nodes, unless an
+	 * equal edge is already in this board. Return true iff e was added.
+	 */
+	boolean addEdge(Edge e) throws IllegalStateException {
+		checkMutable();
+		if (!edges.add(e))
+			return false;
+		edgeIndex.put(e);
+		e.getFirstExit().addExit(e);
+		e.getSecondExit().addExit(e);
+		return true;
+	}
+
+	/**
+	 * Remove e from this board and from the exits of both of its nodes. Return
+	 * true iff e was in this board.
+	 */
+	boolean removeEdge(Edge e) throws IllegalStateException {
+		checkMutable();
+		if (!edges.remove(e))
+			return false;
+		edgeIndex.remove(e);
+		e.getFirstExit().removeExit(e);
+		e.getSecondExit().removeExit(e);
+		return true;
+	}
+
+	/**
+	 * Return the edge of this board connecting the nodes with IDs id1 and id2,
+	 * or null if they are not connected. Takes constant expected time.
+	 */
+	public Edge getEdge(long id1, long id2) {
+		// Read the volatile flag before the index, as the other accessors do,
+		// so a thread that sees the board frozen also sees its frozen index
+		boolean published= frozen;
+		return edgeIndex.get(id1, id2);
+	}
+
+	/** Return the index of the edges of this board by their exits. */
+	EdgeIndex getEdgeIndex() {
+		return edgeIndex;
+	}
+
+	/** Remove all nodes and edges from this board. */
+	void clear() throws IllegalStateException {
+		checkMutable();
+		nodes.clear();
+		edges.clear();
+		edgeIndex.clear();
+	}
+
 	/** Return the number of Edges in this board. */
 	public int getEdgesSize() {
+		if (frozen)
+			return edgeView.size();
 		return edges.size();
 	}
 
@@ -149,8 +328,14 @@ public final class Board {
 		return furthestNodeDistance;
 	}
 
-	/** Set furthest node distance to d. */
-	public void setFurthestNodeDistance(double d) {
+	/**
+	 * Set furthest node distance to d.
+	 *
+	 * @throws IllegalStateException
+	 *             if this board is frozen, which every generated board is
+	 */
+	public void setFurthestNodeDistance(double d) throws IllegalStateException {
+		checkMutable();
 		furthestNodeDistance= d;
 	}
 
@@ -159,8 +344,14 @@ public final class Board {
 		return width;
 	}
 
-	/** Set width of the GUI to w. */
-	public void setWidth(int w) {
+	/**
+	 * Set width of the GUI to w.
+	 *
+	 * @throws IllegalStateException
+	 *             if this board is frozen, which every generated board is
+	 */
+	public void setWidth(int w) throws IllegalStateException {
+		checkMutable();
 		width= w;
 	}
 
@@ -169,8 +360,14 @@ public final class Board {
 		return height;
 	}
 
-	/** Set height of the GUI to h */
-	public void setHeight(int h) {
+	/**
+	 * Set height of the GUI to h
+	 *
+	 * @throws IllegalStateException
+	 *             if this board is frozen, which every generated board is
+	 */
+	public void setHeight(int h) throws IllegalStateException {
+		checkMutable();
 		height= h;
 	}
 
@@ -180,7 +377,7 @@ public final class Board {
 	@Override
 	public String toString() {
 		String output= "";
-		Iterator<Node> nodesIterator= nodes.iterator();
+		Iterator<Node> nodesIterator= getNodes().iterator();
 		while (nodesIterator.hasNext()) {
 			Node n= nodesIterator.next();
 			output += n + "\t";
@@ -208,6 +405,7 @@ public final class Board {
 
 		nodes= new HashSet<Node>();
 		edges= new HashSet<Edge>();
+		edgeIndex= new EdgeIndex();
 
 		BoardGeneration.gen(this, r);
 	}
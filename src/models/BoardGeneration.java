@@ -80,8 +80,10 @@ public class BoardGeneration {
 		if (posTarget.isHostile())
 			posTarget.setHostile(false);
 
-		// Make sure that they can get home with < 3 hostiles.
-		guaranteeSafePathHome(b, random);
+		// Make sure that they can get home with < 3 hostiles. If the board had
+		// to be generated again, that generation has already finished it.
+		if (guaranteeSafePathHome(b, random))
+			return;
 
 		// Ensure there are no speed upgrades on longest path.
 		List<Node> shortestPath= PathFunctions.shortestPath(b.getTarget(), b.getEarth());
@@ -98,19 +100,23 @@ public class BoardGeneration {
 			}
 		}
 		b.setFurthestNodeDistance(maxDistance);
+
+		// No more changes to the board's structure; make it safe to share
+		b.freeze();
 	}
 
 	/**
 	 * Ensure a path from the target to Earth with < 3 hostile nodes. If no path
 	 * at all exists from target to Earth, re-generate the board. If no path
 	 * with < 3 hostile nodes exists, create a path with < 3 hostile nodes.
+	 * Return true iff b was re-generated (and is therefore complete).
 	 * 
 	 * @param b
 	 *            the Board to modify
 	 * @param random
 	 *            used to re-generate b if needed
 	 */
-	private static void guaranteeSafePathHome(Board b, Random random) {
+	private static boolean guaranteeSafePathHome(Board b, Random random) {
 		Node start= b.getTarget();
 		Node end= b.getEarth();
 
@@ -118,10 +124,9 @@ public class BoardGeneration {
 
 		if (path == null) {
 			// Didn't find any path to the end...
-			b.getMutableNodes().clear();
-			b.getMutableEdges().clear();
+			b.clear();
 			gen(b, random);
-			return;
+			return true;
 		}
 
 		// Store number of hostile nodes in hostiles
@@ -141,8 +146,8 @@ public class BoardGeneration {
 					hostiles--;
 				}
 			}
-			return;
 		}
+		return false;
 	}
 
 	/**
@@ -208,14 +213,12 @@ public class BoardGeneration {
 	 */
 	private static Edge addEdge(Board b, Random random, Node n1, Node n2) {
 		Edge e= new Edge(b, n1, n2, (int) Board.distanceBetween(n1, n2));
-		b.getMutableEdges().add(e);
-		n1.addExit(e);
-		n2.addExit(e);
+		b.addEdge(e);
 		return e;
 	}
 
 	/* The maximum number of attempts to get to average node degree */
-	private static int MAX_EDGE_ITERATIONS= 1000;
+	private static final int MAX_EDGE_ITERATIONS= 1000;
 
 	/**
 	 * Create a spiderweb of edges by creating concentric hulls, then connecting
@@ -366,9 +369,8 @@ public class BoardGeneration {
 	 * giftwrapping method
 	 */
 	private static boolean isLeftOfLine(Node start, Node e1, Node e2) {
-		Vector a= start.getVectorTo(e1);
-		Vector b= start.getVectorTo(e2);
-		return Vector.cross(a, b) <= 0;
+		return Geometry.orientation(start.getX(), start.getY(),
+				e1.getX(), e1.getY(), e2.getX(), e2.getY()) <= 0;
 	}
 
 	/**
@@ -377,9 +379,8 @@ public class BoardGeneration {
 	 * spider-webbing methods.
 	 */
 	private static boolean lineCrosses(Board b, Node n1, Node n2) {
-		Edge e= new Edge(b, n1, n2, Edge.DUMMY_LENGTH);
 		for (Edge e1 : b.getMutableEdges()) {
-			if (e1.intersects(e))
+			if (e1.intersects(n1, n2))
 				return true;
 		}
 		return false;
@@ -398,14 +399,18 @@ public class BoardGeneration {
 		HashMap<Edge, Node[]> needsFlip= new HashMap<Edge, Node[]>();
 
 		for (Node n1 : b.getMutableNodes()) {
-			for (Edge e2 : n1.getMutableExits()) {
-				Node n2= e2.getOther(n1);
+			final int degree= n1.getExitsSize();
+			for (int i2= 0; i2 < degree; i2++) {
+				Edge e2= n1.getExit(i2);
+				Node n2= n1.getNeighbor(i2);
 				if (n2 != n1) {
-					for (Edge e3 : n1.getMutableExits()) {
-						Node n3= e3.getOther(n1);
+					for (int i3= 0; i3 < degree; i3++) {
+						Edge e3= n1.getExit(i3);
+						Node n3= n1.getNeighbor(i3);
 						if (n3 != n2 && n3 != n1) {
-							for (Edge e4 : n1.getMutableExits()) {
-								Node n4= e4.getOther(n1);
+							for (int i4= 0; i4 < degree; i4++) {
+								Edge e4= n1.getExit(i4);
+								Node n4= n1.getNeighbor(i4);
 								if (n4 != n3 && n4 != n2 && n4 != n1) {
 									// Check all triangulated quads - n1
 									// connected to n2,
@@ -436,14 +441,11 @@ public class BoardGeneration {
 
 		for (Map.Entry<Edge, Node[]> e : needsFlip.entrySet()) {
 			// Remove old edge
-			b.getMutableEdges().remove(e.getKey());
+			b.removeEdge(e.getKey());
 
 			Node oldFirst= e.getKey().getFirstExit();
 			Node oldSecond= e.getKey().getSecondExit();
 
-			oldFirst.removeExit(e.getKey());
-			oldSecond.removeExit(e.getKey());
-
 			Node newFirst= e.getValue()[0];
 			Node newSecond= e.getValue()[1];
 
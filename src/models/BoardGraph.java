@@ -0,0 +1,189 @@
+package models;
+
+/**
+ * An immutable compressed-sparse-row (CSR) snapshot of the graph of a Board,
+ * built once when the board is generated. Planets are identified by their
+ * index, which is equal to the ID of the corresponding Node. <br>
+ * <br>
+ * Each undirected edge appears as two arcs, one leaving each of its exits. The
+ * arcs leaving node v are numbered firstArc(v) .. endArc(v) - 1, so a
+ * primitive search over the whole galaxy looks like:
+ *
+ * <pre>
+ * for (int a= g.firstArc(v); a &lt; g.endArc(v); a++) {
+ * 	int w= g.target(a);
+ * 	int length= g.length(a);
+ * 	...
+ * }
+ * </pre>
+ *
+ * Hostility and speed upgrades are those of the board when it was generated;
+ * upgrades picked up during a game are not reflected here.
+ */
+public final class BoardGraph implements GraphView {
+
+	/* arcs leaving node v are at indices offsets[v] .. offsets[v+1]-1 */
+	private final int[] offsets;
+
+	private final int[] targets; // targets[a] is the node at the end of arc a
+
+	private final int[] lengths; // lengths[a] is the length of arc a
+
+	private final long[] hostile; // bit v is set iff node v is hostile
+
+	private final long[] upgrades; // bit v is set iff node v has an upgrade
+
+	private final int[] xs; // xs[v], ys[v] are the coordinates of node v
+	private final int[] ys;
+
+	private final Node[] nodes; // nodes[v] is the Node with ID v
+
+	private final int earth; // index of Earth
+
+	/**
+	 * Constructor: a snapshot of the nodes in nodesById and the edges between
+	 * them, with Earth at earthNode. Precondition: nodesById[v] is the Node
+	 * with ID v, for each v, and nodesById is never modified.
+	 */
+	BoardGraph(Node[] nodesById, Node earthNode) {
+		int n= nodesById.length;
+		nodes= nodesById;
+
+		offsets= new int[n + 1];
+		xs= new int[n];
+		ys= new int[n];
+		hostile= new long[(n + 63) >>> 6];
+		upgrades= new long[(n + 63) >>> 6];
+		int arcs= 0;
+		for (int v= 0; v < n; v++) {
+			offsets[v]= arcs;
+			arcs += nodes[v].getExitsSize();
+		}
+		offsets[n]= arcs;
+
+		targets= new int[arcs];
+		lengths= new int[arcs];
+		for (int v= 0; v < n; v++) {
+			Node node= nodes[v];
+			int a= offsets[v];
+			for (int i= 0; i < node.getExitsSize(); i++, a++) {
+				targets[a]= (int) node.getNeighborId(i);
+				lengths[a]= node.getNeighborLength(i);
+			}
+			xs[v]= node.getX();
+			ys[v]= node.getY();
+			if (node.isHostile())
+				hostile[v >>> 6] |= 1L << v;
+			if (node.hasSpeedUpgrade())
+				upgrades[v >>> 6] |= 1L << v;
+		}
+
+		earth= (int) earthNode.getId();
+	}
+
+	/** Return the number of nodes in this graph. */
+	@Override
+	public int size() {
+		return nodes.length;
+	}
+
+	/** Return the number of arcs (twice the number of edges) in this graph. */
+	public int arcCount() {
+		return targets.length;
+	}
+
+	/** Return the index of the first arc leaving node v. */
+	public int firstArc(int v) {
+		return offsets[v];
+	}
+
+	/** Return one past the index of the last arc leaving node v. */
+	public int endArc(int v) {
+		return offsets[v + 1];
+	}
+
+	/** Return the number of arcs leaving node v. */
+	@Override
+	public int degree(int v) {
+		return offsets[v + 1] - offsets[v];
+	}
+
+	/** Return the node at the end of arc a. */
+	public int target(int a) {
+		return targets[a];
+	}
+
+	/** Return the length of arc a. */
+	public int length(int a) {
+		return lengths[a];
+	}
+
+	/** Return a new cursor over the arcs of this graph. */
+	@Override
+	public ArcCursor arcs() {
+		return new ArcCursor() {
+			private int arc; // The current arc
+			private int end; // One past the last arc of the current node
+
+			@Override
+			public void reset(int v) {
+				arc= offsets[v] - 1;
+				end= offsets[v + 1];
+			}
+
+			@Override
+			public boolean next() {
+				return ++arc < end;
+			}
+
+			@Override
+			public int target() {
+				return targets[arc];
+			}
+
+			@Override
+			public int length() {
+				return lengths[arc];
+			}
+		};
+	}
+
+	/** Return true iff node v is hostile. */
+	@Override
+	public boolean isHostile(int v) {
+		return (hostile[v >>> 6] & (1L << v)) != 0;
+	}
+
+	/** Return true iff node v had a speed upgrade when the board was made. */
+	@Override
+	public boolean hasSpeedUpgrade(int v) {
+		return (upgrades[v >>> 6] & (1L << v)) != 0;
+	}
+
+	/** Return the x coordinate of node v. */
+	@Override
+	public int getX(int v) {
+		return xs[v];
+	}
+
+	/** Return the y coordinate of node v. */
+	@Override
+	public int getY(int v) {
+		return ys[v];
+	}
+
+	/** Return the index of Earth. */
+	public int earth() {
+		return earth;
+	}
+
+	/** Return the Node with index v. */
+	public Node node(int v) {
+		return nodes[v];
+	}
+
+	/** Return the index of Node n. Precondition: n belongs to this board. */
+	public int indexOf(Node n) {
+		return (int) n.getId();
+	}
+}
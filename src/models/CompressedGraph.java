@@ -0,0 +1,305 @@
+package models;
+
+import java.util.Arrays;
+
+/**
+ * A read-only galaxy whose adjacency is delta-compressed: the arcs of each
+ * planet are sorted by target and stored as variable-length integers (7 bits
+ * per byte), each target as the gap from the previous one and each length as
+ * is. Planar galaxies have low degree, and once planets are numbered in
+ * spatial order (see spatialOrder(GraphView)) neighbors have nearby indices,
+ * so most gaps and many lengths fit in a single byte. <br>
+ * <br>
+ * The record of planet v, starting at byte offsets[v], is: the degree d of v,
+ * then d (gap, length) pairs. The first gap is relative to v itself and
+ * zigzag-encoded, since it may be negative; the others are relative to the
+ * previous target and are always positive. <br>
+ * <br>
+ * Traversal is through the GraphView cursor, which decodes a planet's record
+ * in one forward pass without allocating.
+ */
+public final class CompressedGraph implements GraphView {
+
+	/* Bits of flags[v] */
+	private static final byte HOSTILE= 1;
+	private static final byte UPGRADE= 2;
+
+	private final byte[] data; // The encoded adjacency records
+
+	private final int[] offsets; // Record of v starts at data[offsets[v]]
+
+	private final int[] xs; // xs[v], ys[v] are the coordinates of planet v
+	private final int[] ys;
+
+	private final byte[] flags; // Hostility and upgrade of each planet
+
+	/*
+	 * The index in the source graph of each planet, or null if planets kept
+	 * their source indices.
+	 */
+	private final int[] original;
+
+	/** Constructor: an instance with the given (already filled) storage. */
+	private CompressedGraph(byte[] data, int[] offsets, int[] xs, int[] ys, byte[] flags,
+			int[] original) {
+		this.data= data;
+		this.offsets= offsets;
+		this.xs= xs;
+		this.ys= ys;
+		this.flags= flags;
+		this.original= original;
+	}
+
+	/** Return a compressed copy of g, keeping g's planet indices. */
+	public static CompressedGraph encode(GraphView g) {
+		return encode(g, null);
+	}
+
+	/**
+	 * Return a compressed copy of g in which planet i is planet order[i] of g.
+	 * If order is null, planets keep their indices. Precondition: order is
+	 * null or a permutation of 0 .. g.size()-1.
+	 */
+	public static CompressedGraph encode(GraphView g, int[] order) {
+		int n= g.size();
+		int[] rank= null; // rank[w] is the new index of planet w of g
+		if (order != null) {
+			rank= new int[n];
+			for (int i= 0; i < n; i++) {
+				rank[order[i]]= i;
+			}
+		}
+
+		int[] xs= new int[n];
+		int[] ys= new int[n];
+		byte[] flags= new byte[n];
+		int[] offsets= new int[n + 1];
+		Encoder out= new Encoder(4 * n + 16);
+		long[] arcs= new long[16]; // (target << 32 | length), sorted per planet
+		GraphView.ArcCursor c= g.arcs();
+		for (int v= 0; v < n; v++) {
+			int w= order == null ? v : order[v];
+			xs[v]= g.getX(w);
+			ys[v]= g.getY(w);
+			flags[v]= (byte) ((g.isHostile(w) ? HOSTILE : 0) | (g.hasSpeedUpgrade(w) ? UPGRADE : 0));
+
+			int d= 0;
+			c.reset(w);
+			while (c.next()) {
+				if (d == arcs.length)
+					arcs= Arrays.copyOf(arcs, 2 * d);
+				int t= rank == null ? c.target() : rank[c.target()];
+				arcs[d++]= ((long) t << 32) | c.length();
+			}
+			Arrays.sort(arcs, 0, d);
+
+			offsets[v]= out.size;
+			out.write(d);
+			int prev= v;
+			for (int i= 0; i < d; i++) {
+				int t= (int) (arcs[i] >>> 32);
+				out.write(i == 0 ? zigzag(t - v) : t - prev);
+				out.write((int) arcs[i]);
+				prev= t;
+			}
+		}
+		offsets[n]= out.size;
+
+		return new CompressedGraph(Arrays.copyOf(out.buf, out.size), offsets, xs, ys, flags,
+				order == null ? null : order.clone());
+	}
+
+	/**
+	 * Return a spatial numbering of the planets of g: the indices of g's
+	 * planets sorted along a Z-order (Morton) curve through their coordinates.
+	 * Passing it to encode(GraphView, int[]) gives neighbors nearby indices and
+	 * therefore small gaps.
+	 */
+	public static int[] spatialOrder(GraphView g) {
+		int n= g.size();
+		if (n == 0)
+			return new int[0];
+		int minX= Integer.MAX_VALUE, minY= Integer.MAX_VALUE;
+		int maxX= Integer.MIN_VALUE, maxY= Integer.MIN_VALUE;
+		for (int v= 0; v < n; v++) {
+			minX= Math.min(minX, g.getX(v));
+			maxX= Math.max(maxX, g.getX(v));
+			minY= Math.min(minY, g.getY(v));
+			maxY= Math.max(maxY, g.getY(v));
+		}
+
+		// Pack (Morton code, index) into 63 bits so a plain sort orders them
+		int indexBits= 32 - Integer.numberOfLeadingZeros(n - 1);
+		int coordBits= (63 - indexBits) / 2;
+		double scale= (double) ((1L << coordBits) - 1);
+		double rangeX= Math.max(1, (long) maxX - minX);
+		double rangeY= Math.max(1, (long) maxY - minY);
+		long[] keys= new long[n];
+		for (int v= 0; v < n; v++) {
+			long x= (long) (((long) g.getX(v) - minX) / rangeX * scale);
+			long y= (long) (((long) g.getY(v) - minY) / rangeY * scale);
+			keys[v]= ((spread(x) | (spread(y) << 1)) << indexBits) | v;
+		}
+		Arrays.sort(keys);
+
+		int[] order= new int[n];
+		long indexMask= (1L << indexBits) - 1;
+		for (int i= 0; i < n; i++) {
+			order[i]= (int) (keys[i] & indexMask);
+		}
+		return order;
+	}
+
+	/** Return x with its bits spread out to the even bit positions. */
+	private static long spread(long x) {
+		x &= 0xFFFFFFFFL;
+		x= (x | (x << 16)) & 0x0000FFFF0000FFFFL;
+		x= (x | (x << 8)) & 0x00FF00FF00FF00FFL;
+		x= (x | (x << 4)) & 0x0F0F0F0F0F0F0F0FL;
+		x= (x | (x << 2)) & 0x3333333333333333L;
+		x= (x | (x << 1)) & 0x5555555555555555L;
+		return x;
+	}
+
+	/** Return i zigzag-encoded, so that small negative values stay small. */
+	private static int zigzag(int i) {
+		return (i << 1) ^ (i >> 31);
+	}
+
+	/** Return the value zigzag-encoded as z. */
+	private static int unzigzag(int z) {
+		return (z >>> 1) ^ -(z & 1);
+	}
+
+	/**
+	 * Return the index in the source graph of planet v (v itself if the
+	 * planets were not renumbered).
+	 */
+	public int originalIndex(int v) {
+		return original == null ? v : original[v];
+	}
+
+	/** Return the number of bytes used to store the adjacency of this graph. */
+	public long adjacencyBytes() {
+		return data.length + 4L * offsets.length;
+	}
+
+	@Override
+	public int size() {
+		return xs.length;
+	}
+
+	@Override
+	public int degree(int v) {
+		int pos= offsets[v];
+		int d= 0;
+		for (int shift= 0;; shift += 7) {
+			byte b= data[pos++];
+			d |= (b & 0x7F) << shift;
+			if (b >= 0)
+				return d;
+		}
+	}
+
+	@Override
+	public ArcCursor arcs() {
+		return new ArcCursor() {
+			private int pos; // Position of the next byte to decode
+			private int remaining; // Arcs of the current planet not yet read
+			private int source; // The current planet
+			private boolean first; // True iff no arc has been read yet
+			private int target; // Target of the current arc
+			private int length; // Length of the current arc
+
+			@Override
+			public void reset(int v) {
+				pos= offsets[v];
+				remaining= readVarint();
+				source= v;
+				first= true;
+			}
+
+			@Override
+			public boolean next() {
+				if (remaining == 0)
+					return false;
+				remaining--;
+				int gap= readVarint();
+				target= first ? source + unzigzag(gap) : target + gap;
+				first= false;
+				length= readVarint();
+				return true;
+			}
+
+			@Override
+			public int target() {
+				return target;
+			}
+
+			@Override
+			public int length() {
+				return length;
+			}
+
+			/** Decode the varint at pos and advance past it. */
+			private int readVarint() {
+				byte b= data[pos++];
+				if (b >= 0)
+					return b;
+				int value= b & 0x7F;
+				for (int shift= 7;; shift += 7) {
+					b= data[pos++];
+					value |= (b & 0x7F) << shift;
+					if (b >= 0)
+						return value;
+				}
+			}
+		};
+	}
+
+	@Override
+	public boolean isHostile(int v) {
+		return (flags[v] & HOSTILE) != 0;
+	}
+
+	@Override
+	public boolean hasSpeedUpgrade(int v) {
+		return (flags[v] & UPGRADE) != 0;
+	}
+
+	@Override
+	public int getX(int v) {
+		return xs[v];
+	}
+
+	@Override
+	public int getY(int v) {
+		return ys[v];
+	}
+
+	/** A growable byte array that varints are appended to. */
+	private static final class Encoder {
+		private byte[] buf;
+		private int size; // Number of bytes written
+
+		/** Constructor: an empty encoder with room for cap bytes. */
+		private Encoder(int cap) {
+			buf= new byte[cap];
+		}
+
+		/** Append the unsigned varint encoding of i. */
+		private void write(int i) {
+			if (size + 5 > buf.length) {
+				long cap= Math.min(2L * buf.length + 5, Integer.MAX_VALUE - 8);
+				if (cap < size + 5)
+					throw new IllegalStateException("Compressed graph too large");
+				buf= Arrays.copyOf(buf, (int) cap);
+			}
+			while ((i & ~0x7F) != 0) {
+				buf[size++]= (byte) ((i & 0x7F) | 0x80);
+				i >>>= 7;
+			}
+			buf[size++]= (byte) i;
+		}
+	}
+}
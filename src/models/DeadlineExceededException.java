@@ -0,0 +1,16 @@
+package models;
+
+/**
+ * Thrown by the methods of RescueStage and ReturnStage when they are called
+ * after the stage's time is up or its allocation budget is used up (or after
+ * the game was terminated), so that a solution that keeps running past its
+ * limits is stopped at its next call.
+ */
+public class DeadlineExceededException extends RuntimeException {
+	private static final long serialVersionUID= 1L;
+
+	/** Constructor: an instance with message m. */
+	public DeadlineExceededException(String m) {
+		super(m);
+	}
+}
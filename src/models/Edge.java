@@ -1,7 +1,5 @@
 package models;
 
-import java.awt.geom.Line2D;
-
 /**
  * Class Edge in SpaceShipRescue allows creation of the connections between
  * Nodes along which the Spaceship can travel. Each Edge is bidirectional and is
@@ -31,6 +29,12 @@ public final class Edge implements BoardElement {
 
 	private final Board board; // The board to which this Edge belongs.
 
+	/*
+	 * Identity of this Edge: the IDs of its exits packed as (min, max). See
+	 * key(long, long).
+	 */
+	private final long key;
+
 	/**
 	 * Constructor: an Edge on m with end nodes in exits and length
 	 * lengthBtwnPlanets, which must be positive and non-zero.
@@ -66,6 +70,7 @@ public final class Edge implements BoardElement {
 		setExits(e);
 
 		board= m;
+		key= key(firstExit.getId(), secondExit.getId());
 
 		if (lengthBtwnPlanets <= 0 && lengthBtwnPlanets != Edge.DUMMY_LENGTH)
 			throw new IllegalArgumentException(
@@ -173,6 +178,28 @@ public final class Edge implements BoardElement {
 		throw new IllegalArgumentException("This edge does not have Node n");
 	}
 
+	/**
+	 * Return the key identifying the (unordered) pair of nodes with IDs id1 and
+	 * id2: the smaller ID in the high 32 bits and the larger in the low 32
+	 * bits. Precondition: 0 <= id1, id2 < 2^32.
+	 */
+	static long key(long id1, long id2) {
+		return id1 < id2 ? (id1 << 32) | id2 : (id2 << 32) | id1;
+	}
+
+	/**
+	 * Return the hash of key, spreading its bits over the whole int. Used by
+	 * EdgeIndex; hashCode() does not use it (see there).
+	 */
+	static int hash(long key) {
+		return Long.hashCode(key * 0x9E3779B97F4A7C15L);
+	}
+
+	/** Return the key identifying the pair of exits of this Edge. */
+	long getKey() {
+		return key;
+	}
+
 	/**
 	 * Return true iff this edge and e are equal. Two Edges are equal if they
 	 * have the same exits, even if they have different lengths. This ensures
@@ -181,8 +208,8 @@ public final class Edge implements BoardElement {
 	 */
 	@Override
 	public boolean equals(Object e) {
-		if (e == null)
-			return false;
+		if (e == this)
+			return true;
 		if (!(e instanceof Edge))
 			return false;
 		Edge e1= (Edge) e;
@@ -196,7 +223,10 @@ public final class Edge implements BoardElement {
 	 * the hashCodes of its first and second exit.
 	 * {@code getFirstExit().hashCode() + getSecondExit().hashCode()}. Notably:
 	 * This means the ordering of the exits for an edge doesn't matter for
-	 * hashing
+	 * hashing. <br>
+	 * <br>
+	 * Board generation iterates HashSets of edges, so this must not change:
+	 * a different hash would generate a different board for the same seed.
 	 */
 	@Override
 	public int hashCode() {
@@ -205,8 +235,8 @@ public final class Edge implements BoardElement {
 
 	/**
 	 * Return a String representation of this edge:
-	 * {@code getFirstExit().name + " to " + getSecondExit().name  *
-	 /
+	 * {@code getFirstExit().name + " to " + getSecondExit().name}
+	 */
 	@Override
 	public String toString() {
 		return exits[0].name + " to " + exits[1].name;
@@ -219,15 +249,15 @@ public final class Edge implements BoardElement {
 
 	/** Return the x location the boarded name of this Edge. */
 	public int getX() {
-		int x1= getExits()[0].getX();
-		int x2= getExits()[1].getX();
+		int x1= exits[0].getX();
+		int x2= exits[1].getX();
 		return (int) (((double) (x1 + x2)) / 2);
 	}
 
 	/** Return the y location the boarded name of this Edge. */
 	public int getY() {
-		int y1= getExits()[0].getY();
-		int y2= getExits()[1].getY();
+		int y1= exits[0].getY();
+		int y2= exits[1].getY();
 		return (int) (((double) (y1 + y2)) / 2);
 	}
 
@@ -255,13 +285,13 @@ public final class Edge implements BoardElement {
 		Node otherPoint1= getOther(commonEndpoint);
 		Node otherPoint2= e.getOther(commonEndpoint);
 
-		Vector v= new Vector(otherPoint1.getX() - commonEndpoint.getX(),
-				otherPoint1.getY() - commonEndpoint.getY());
-
-		Vector v2= new Vector(otherPoint2.getX() - commonEndpoint.getY(),
+		// The second vector is (x2 - cy, x2 - cy), not (x2 - cx, y2 - cy).
+		// Board generation depends on it: measuring the real angle changes the
+		// Delaunay flips, and so every generated board.
+		return Geometry.angle(otherPoint1.getX() - commonEndpoint.getX(),
+				otherPoint1.getY() - commonEndpoint.getY(),
+				otherPoint2.getX() - commonEndpoint.getY(),
 				otherPoint2.getX() - commonEndpoint.getY());
-
-		return Vector.radAngle(v, v2);
 	}
 
 	/**
@@ -269,10 +299,19 @@ public final class Edge implements BoardElement {
 	 * endpoint.)
 	 */
 	boolean intersects(Edge e) {
-		return !sharesExit(e) && Line2D.linesIntersect(
-				getExits()[0].getX(), getExits()[0].getY(), 
-				getExits()[1].getX(), getExits()[1].getY(),
-				e.getExits()[0].getX(), e.getExits()[0].getY(),
-				e.getExits()[1].getX(), e.getExits()[1].getY());
+		return intersects(e.exits[0], e.exits[1]);
+	}
+
+	/**
+	 * Return true iff the segment from n1 to n2 intersects this edge. (Return
+	 * false if n1 or n2 is an exit of this edge.)
+	 */
+	boolean intersects(Node n1, Node n2) {
+		Node a= exits[0];
+		Node b= exits[1];
+		if (a == n1 || a == n2 || b == n1 || b == n2)
+			return false;
+		return Geometry.segmentsIntersect(a.getX(), a.getY(), b.getX(), b.getY(),
+				n1.getX(), n1.getY(), n2.getX(), n2.getY());
 	}
 }
\ No newline at end of file
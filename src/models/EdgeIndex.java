@@ -0,0 +1,122 @@
+package models;
+
+import java.util.Arrays;
+
+/**
+ * An index of the edges of a Board by the packed IDs of their exits (see
+ * Edge.key(long, long)), so that the edge connecting two nodes can be found in
+ * constant time. Uses open addressing with linear probing; a slot is empty iff
+ * its value is null.
+ */
+final class EdgeIndex {
+
+	/* Maximum ratio of size to capacity before the table is doubled */
+	private static final double MAX_LOAD= 0.5;
+
+	private long[] keys; // keys[i] is the key of the edge in values[i]
+
+	private Edge[] values; // The edges, or null for an empty slot
+
+	private int size; // Number of edges in this index
+
+	/** Constructor: an empty index. */
+	EdgeIndex() {
+		keys= new long[16];
+		values= new Edge[16];
+	}
+
+	/** Return the number of edges in this index. */
+	int size() {
+		return size;
+	}
+
+	/** Return the number of slots in the table of this index. */
+	int capacity() {
+		return values.length;
+	}
+
+	/**
+	 * Return the edge whose exits have IDs id1 and id2 (in either order), or
+	 * null if there is none.
+	 */
+	Edge get(long id1, long id2) {
+		long key= Edge.key(id1, id2);
+		int mask= values.length - 1;
+		for (int i= Edge.hash(key) & mask; values[i] != null; i= (i + 1) & mask) {
+			if (keys[i] == key)
+				return values[i];
+		}
+		return null;
+	}
+
+	/**
+	 * Add e to this index, replacing any edge equal to e. Return the edge it
+	 * replaced, or null if there was none.
+	 */
+	Edge put(Edge e) {
+		if (size + 1 > values.length * MAX_LOAD)
+			resize(2 * values.length);
+		long key= e.getKey();
+		int mask= values.length - 1;
+		int i= Edge.hash(key) & mask;
+		while (values[i] != null) {
+			if (keys[i] == key) {
+				Edge old= values[i];
+				values[i]= e;
+				return old;
+			}
+			i= (i + 1) & mask;
+		}
+		keys[i]= key;
+		values[i]= e;
+		size++;
+		return null;
+	}
+
+	/** Remove the edge equal to e from this index. Return true iff one was. */
+	boolean remove(Edge e) {
+		long key= e.getKey();
+		int mask= values.length - 1;
+		int i= Edge.hash(key) & mask;
+		while (values[i] != null && keys[i] != key) {
+			i= (i + 1) & mask;
+		}
+		if (values[i] == null)
+			return false;
+
+		// Backward-shift deletion: move later entries of the probe run into
+		// the hole so that no lookup stops early at an empty slot.
+		int hole= i;
+		for (int j= (i + 1) & mask; values[j] != null; j= (j + 1) & mask) {
+			int home= Edge.hash(keys[j]) & mask;
+			// Move entry j to the hole iff the hole lies cyclically within
+			// home .. j
+			if (((j - home) & mask) >= ((j - hole) & mask)) {
+				keys[hole]= keys[j];
+				values[hole]= values[j];
+				hole= j;
+			}
+		}
+		values[hole]= null;
+		size--;
+		return true;
+	}
+
+	/** Remove all edges from this index. */
+	void clear() {
+		Arrays.fill(values, null);
+		size= 0;
+	}
+
+	/** Rehash all edges into a table with capacity cap (a power of 2). */
+	private void resize(int cap) {
+		Edge[] old= values;
+		keys= new long[cap];
+		values= new Edge[cap];
+		size= 0;
+		for (Edge e : old) {
+			if (e != null)
+				put(e);
+		}
+	}
+}
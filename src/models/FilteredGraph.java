@@ -0,0 +1,144 @@
+package models;
+
+import java.util.function.IntPredicate;
+
+import utils.collections.GrowableBitSet;
+
+/**
+ * A view of the subgraph of a GraphView induced by a set of allowed nodes: the
+ * arcs of the view are the arcs of the underlying graph whose two ends are
+ * both allowed. Nothing is copied; the view keeps only a bitset of the allowed
+ * nodes and skips disallowed targets while traversing. <br>
+ * <br>
+ * Disallowed nodes keep their indices but have no arcs, so searches started
+ * from an allowed node only ever touch the allowed subgraph.
+ */
+public final class FilteredGraph implements GraphView {
+
+	private final GraphView graph; // The underlying graph
+
+	private final GrowableBitSet allowed; // The nodes in the subgraph
+
+	/**
+	 * Constructor: the subgraph of g induced by the nodes in allowed. allowed
+	 * is used directly, not copied.
+	 */
+	public FilteredGraph(GraphView g, GrowableBitSet allowed) {
+		graph= g;
+		this.allowed= allowed;
+	}
+
+	/** Constructor: the subgraph of g induced by the nodes satisfying p. */
+	public FilteredGraph(GraphView g, IntPredicate p) {
+		this(g, select(g, p));
+	}
+
+	/**
+	 * Return the subgraph of g without its hostile nodes, except for the nodes
+	 * in keep (typically the start and end of a search), which are allowed
+	 * even if hostile.
+	 */
+	public static FilteredGraph withoutHostiles(GraphView g, int... keep) {
+		GrowableBitSet allowed= new GrowableBitSet(g.size());
+		for (int v= 0; v < g.size(); v++) {
+			if (!g.isHostile(v))
+				allowed.set(v);
+		}
+		for (int v : keep) {
+			allowed.set(v);
+		}
+		return new FilteredGraph(g, allowed);
+	}
+
+	/** Return the set of nodes of g that satisfy p. */
+	private static GrowableBitSet select(GraphView g, IntPredicate p) {
+		GrowableBitSet s= new GrowableBitSet(g.size());
+		for (int v= 0; v < g.size(); v++) {
+			if (p.test(v))
+				s.set(v);
+		}
+		return s;
+	}
+
+	/** Return true iff node v is in this subgraph. */
+	public boolean isAllowed(int v) {
+		return allowed.get(v);
+	}
+
+	/** Return the number of nodes of the underlying graph. */
+	@Override
+	public int size() {
+		return graph.size();
+	}
+
+	/** Return the number of arcs leaving v within this subgraph. */
+	@Override
+	public int degree(int v) {
+		if (!allowed.get(v))
+			return 0;
+		int d= 0;
+		ArcCursor c= graph.arcs();
+		c.reset(v);
+		while (c.next()) {
+			if (allowed.get(c.target()))
+				d++;
+		}
+		return d;
+	}
+
+	@Override
+	public ArcCursor arcs() {
+		final ArcCursor c= graph.arcs();
+		return new ArcCursor() {
+			private boolean inside; // True iff the current node is allowed
+
+			@Override
+			public void reset(int v) {
+				inside= allowed.get(v);
+				if (inside)
+					c.reset(v);
+			}
+
+			@Override
+			public boolean next() {
+				if (!inside)
+					return false;
+				while (c.next()) {
+					if (allowed.get(c.target()))
+						return true;
+				}
+				return false;
+			}
+
+			@Override
+			public int target() {
+				return c.target();
+			}
+
+			@Override
+			public int length() {
+				return c.length();
+			}
+		};
+	}
+
+	@Override
+	public boolean isHostile(int v) {
+		return graph.isHostile(v);
+	}
+
+	@Override
+	public boolean hasSpeedUpgrade(int v) {
+		return graph.hasSpeedUpgrade(v);
+	}
+
+	@Override
+	public int getX(int v) {
+		return graph.getX(v);
+	}
+
+	@Override
+	public int getY(int v) {
+		return graph.getY(v);
+	}
+}
@@ -0,0 +1,75 @@
+package models;
+
+/**
+ * An instance is something that happened in a game, published by its
+ * GameState on its GameEventBus. Events are immutable, so they can be handed
+ * to listeners on other threads. <br>
+ * <br>
+ * The type of an event says which of its fields are meaningful:
+ * <ul>
+ * <li>RESCUE_STAGE, RETURN_STAGE: a stage began; no fields.
+ * <li>MOVE: the ship left getNode() along getEdge().
+ * <li>GRAB: the ship grabbed the upgrade on getNode().
+ * <li>DISTANCE, HP: the cumulative distance or the HP is now getInt().
+ * <li>TIME, SPEED: the time elapsed or the speed is now getDouble().
+ * </ul>
+ * DISTANCE, TIME, HP and SPEED events report values; only the latest of each
+ * matters, so a listener that lags behind may be sent just the latest.
+ */
+public final class GameEvent {
+
+	/* Event types */
+	public static final int RESCUE_STAGE= 0;
+	public static final int RETURN_STAGE= 1;
+	public static final int MOVE= 2;
+	public static final int GRAB= 3;
+	public static final int DISTANCE= 4;
+	public static final int TIME= 5;
+	public static final int HP= 6;
+	public static final int SPEED= 7;
+
+	private final int type;
+	private final Node node; // For MOVE and GRAB
+	private final Edge edge; // For MOVE
+	private final int intValue; // For DISTANCE and HP
+	private final double doubleValue; // For TIME and SPEED
+
+	/** Constructor: an event of type t with the given fields. */
+	GameEvent(int t, Node n, Edge e, int i, double d) {
+		type= t;
+		node= n;
+		edge= e;
+		intValue= i;
+		doubleValue= d;
+	}
+
+	/** Return the type of this event. */
+	public int getType() {
+		return type;
+	}
+
+	/** Return true iff this event reports a value (see the class comment). */
+	public boolean isValue() {
+		return type >= DISTANCE;
+	}
+
+	/** Return the node of a MOVE or GRAB event. */
+	public Node getNode() {
+		return node;
+	}
+
+	/** Return the edge of a MOVE event. */
+	public Edge getEdge() {
+		return edge;
+	}
+
+	/** Return the value of a DISTANCE or HP event. */
+	public int getInt() {
+		return intValue;
+	}
+
+	/** Return the value of a TIME or SPEED event. */
+	public double getDouble() {
+		return doubleValue;
+	}
+}
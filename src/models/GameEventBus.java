@@ -0,0 +1,286 @@
+package models;
+
+import controllers.Driver;
+import java.util.ArrayList;
+import java.util.Arrays;
+import utils.TimedExecutor;
+
+/**
+ * An instance carries the events of one game from its GameState to any
+ * number of GameListeners, so that the game does not call the user interface
+ * directly. <br>
+ * <br>
+ * A listener is either synchronous, called on the game's thread as each event
+ * is published, or asynchronous, called on a thread of its own: events for it
+ * are queued, and its thread takes them in batches, coalescing the value
+ * events (distance, time, HP, speed) of a batch to the latest of each. So a
+ * slow listener, such as an animated GUI, only holds up the game when it
+ * falls a whole queue behind: the queue is bounded, and the game waits while
+ * it is full, so the listener sees every move and grab and is never more than
+ * a queue's worth of events behind the game. An exception thrown by an
+ * asynchronous listener is reported to the driver, and the listener keeps
+ * receiving events. <br>
+ * <br>
+ * When there are no listeners, publishing an event costs a single check and
+ * allocates nothing. If the game measures what its stages allocate, the
+ * bytes allocated while publishing, including by synchronous listeners, are
+ * counted too, so that they can be told apart from what the ship's code
+ * allocates; otherwise publishing does not read the allocation counter.
+ * Events are published by one thread at a time.
+ */
+public final class GameEventBus {
+
+	/* The listeners; replaced, never modified, when one subscribes */
+	private volatile GameListener[] listeners= new GameListener[0];
+
+	/** The number of events an asynchronous listener queues by default. */
+	public static final int DEFAULT_CAPACITY= 1024;
+
+	/* The driver of the game, to which listener errors are reported */
+	private final Driver driver;
+
+	/* True once close() has been called */
+	private volatile boolean closed;
+
+	/* True iff publishing counts the bytes it allocates */
+	private volatile boolean counting;
+
+	/* The number of bytes allocated while publishing events, if counting */
+	private long allocated;
+
+	/** Add l as a synchronous listener. */
+	public synchronized void subscribe(GameListener l) {
+		GameListener[] ls= Arrays.copyOf(listeners, listeners.length + 1);
+		ls[listeners.length]= l;
+		listeners= ls;
+	}
+
+	/** Constructor: a bus with no listeners for a game driven by d. */
+	GameEventBus(Driver d) {
+		driver= d;
+	}
+
+	/**
+	 * Add l as an asynchronous listener with a queue of DEFAULT_CAPACITY
+	 * events, as in subscribeAsync(GameListener, String, int).
+	 */
+	public void subscribeAsync(GameListener l, String name) {
+		subscribeAsync(l, name, DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Add l as an asynchronous listener, called on a new daemon thread named
+	 * name, which ends when this bus is closed. At most capacity events are
+	 * queued for it; while the queue is full, the game waits. The wait counts
+	 * against the stage's wall-clock time, so give a slow listener a game with
+	 * long timeouts. Precondition: capacity > 0.
+	 */
+	public synchronized void subscribeAsync(GameListener l, String name, int capacity) {
+		AsyncListener a= new AsyncListener(l, capacity, driver);
+		Thread t= new Thread(a, name);
+		t.setDaemon(true);
+		t.start();
+		subscribe(a);
+	}
+
+	/** Return the listeners of this bus. Do not modify the array. */
+	GameListener[] getListeners() {
+		return listeners;
+	}
+
+	/** Return true iff this bus has at least one listener. */
+	public boolean hasListeners() {
+		return listeners.length > 0;
+	}
+
+	/**
+	 * Stop delivering events: asynchronous listeners drop the events they have
+	 * not been sent yet, and their threads end. Later events are ignored.
+	 */
+	public synchronized void close() {
+		closed= true;
+		for (GameListener l : listeners) {
+			if (l instanceof AsyncListener)
+				((AsyncListener) l).close();
+		}
+		listeners= new GameListener[0];
+	}
+
+	/** Publish that the stage of type t (RESCUE_STAGE or RETURN_STAGE) began. */
+	void stageBegan(int t) {
+		if (listeners.length > 0)
+			publish(t, null, null, 0, 0);
+	}
+
+	/** Publish that the ship left Node n along Edge e. */
+	void moved(Node n, Edge e) {
+		if (listeners.length > 0)
+			publish(GameEvent.MOVE, n, e, 0, 0);
+	}
+
+	/** Publish that the ship grabbed the upgrade on Node n. */
+	void grabbed(Node n) {
+		if (listeners.length > 0)
+			publish(GameEvent.GRAB, n, null, 0, 0);
+	}
+
+	/** Publish that the value of type t (DISTANCE or HP) is now v. */
+	void valueChanged(int t, int v) {
+		if (listeners.length > 0)
+			publish(t, null, null, v, 0);
+	}
+
+	/** Publish that the value of type t (TIME or SPEED) is now v. */
+	void valueChanged(int t, double v) {
+		if (listeners.length > 0)
+			publish(t, null, null, 0, v);
+	}
+
+	/**
+	 * Send the event with type t, node n, edge e and values i and d to every
+	 * listener, counting the bytes this allocates if counting is on.
+	 */
+	private void publish(int t, Node n, Edge e, int i, double d) {
+		if (closed)
+			return;
+		long before= counting ? TimedExecutor.currentThreadAllocatedBytes() : -1;
+		GameEvent ev= new GameEvent(t, n, e, i, d);
+		for (GameListener l : listeners) {
+			l.onEvent(ev);
+		}
+		if (before >= 0)
+			allocated += TimedExecutor.currentThreadAllocatedBytes() - before;
+	}
+
+	/** Count the bytes allocated while publishing events from now on. */
+	void countAllocation() {
+		counting= true;
+	}
+
+	/**
+	 * Return the number of bytes allocated so far while publishing events, or
+	 * 0 if they are not counted or cannot be measured.
+	 */
+	long getAllocatedBytes() {
+		return allocated;
+	}
+
+	/**
+	 * A listener that queues events, up to a bound, and passes them on to
+	 * another listener on its own thread, in coalesced batches.
+	 */
+	static final class AsyncListener implements GameListener, Runnable {
+		private final GameListener target; // Where events are passed on to
+
+		private final int capacity; // The most events pending may hold
+
+		private final Driver driver; // Told about exceptions thrown by target
+
+		/* Events not yet taken by the thread; guarded by this */
+		private ArrayList<GameEvent> pending= new ArrayList<GameEvent>();
+
+		private boolean closed; // True once closed; guarded by this
+
+		/**
+		 * Constructor: an instance passing events on to l, queueing at most cap
+		 * of them, and reporting exceptions l throws to d.
+		 */
+		private AsyncListener(GameListener l, int cap, Driver d) {
+			target= l;
+			capacity= cap;
+			driver= d;
+		}
+
+		/**
+		 * Queue e for the thread, first waiting while the queue is full. If the
+		 * calling thread is interrupted while it waits, e is dropped.
+		 */
+		@Override
+		public synchronized void onEvent(GameEvent e) {
+			while (pending.size() >= capacity && !closed) {
+				try {
+					wait();
+				} catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+			}
+			if (closed)
+				return;
+			pending.add(e);
+			if (pending.size() == 1)
+				notifyAll();
+		}
+
+		/** Return the number of events this listener queues at most. */
+		int capacity() {
+			return capacity;
+		}
+
+		/** Return the number of events queued and not yet taken by the thread. */
+		synchronized int queued() {
+			return pending.size();
+		}
+
+		/** Drop the queued events and end the thread. */
+		private synchronized void close() {
+			closed= true;
+			pending.clear();
+			notifyAll();
+		}
+
+		/** Take the queued events in batches and pass them on, until closed. */
+		@Override
+		public void run() {
+			ArrayList<GameEvent> batch= new ArrayList<GameEvent>();
+			while (true) {
+				synchronized (this) {
+					while (pending.isEmpty() && !closed) {
+						try {
+							wait();
+						} catch (InterruptedException e) {
+							return;
+						}
+					}
+					if (closed)
+						return;
+					ArrayList<GameEvent> b= pending;
+					pending= batch;
+					batch= b;
+					notifyAll();
+				}
+				deliver(batch);
+				batch.clear();
+			}
+		}
+
+		/**
+		 * Pass the events of batch on to target in order, except for value
+		 * events followed later in batch by another of the same type.
+		 */
+		private void deliver(ArrayList<GameEvent> batch) {
+			boolean[] later= new boolean[GameEvent.SPEED + 1]; // Types seen later
+			for (int i= batch.size() - 1; i >= 0; i--) {
+				GameEvent e= batch.get(i);
+				if (e.isValue()) {
+					if (later[e.getType()])
+						batch.set(i, null);
+					later[e.getType()]= true;
+				}
+			}
+			for (GameEvent e : batch) {
+				if (e == null)
+					continue;
+				try {
+					target.onEvent(e);
+				} catch (RuntimeException ex) {
+					driver.errPrintln("Game listener threw " + ex);
+				}
+				synchronized (this) {
+					if (closed)
+						return;
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,8 @@
+package models;
+
+/** A GameListener is told about the events of a game, through a GameEventBus. */
+public interface GameListener {
+
+	/** Handle event e. */
+	public void onEvent(GameEvent e);
+}
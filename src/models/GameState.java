@@ -1,36 +1,77 @@
 package models;
 
 import controllers.Driver;
-import controllers.GUIDriver;
-import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
-import java.util.Map;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeoutException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
+import utils.TimedExecutor;
+import utils.collections.GrowableBitSet;
 
-/** An instance keeps track of the time and position of a ship in a galaxy. */
+/**
+ * An instance keeps track of the time and position of a ship in a galaxy. <br>
+ * <br>
+ * Games are independent: a GameState shares no mutable state with any other,
+ * since each has its own Driver, Board and Spaceship and its own timeouts, and
+ * its stages run on the shared TimedExecutor, where a stage's time only
+ * starts once a thread picks it up. So any number of games can run in
+ * parallel, one thread calling run() per game. A single GameState is not
+ * meant to be used by several threads at once, apart from terminate(), which
+ * may be called from any thread.
+ */
 public class GameState implements RescueStage, ReturnStage {
 	/* The driver that runs this particular game */
 	private Driver driver;
 
+	/* The default timeouts of rescue and return, in DEFAULT_TIME_UNIT */
+	public static final long DEFAULT_RESCUE_TIMEOUT= 5;
+	public static final long DEFAULT_RETURN_TIMEOUT= 10;
+	public static final TimeUnit DEFAULT_TIME_UNIT= TimeUnit.SECONDS;
+
 	/*
 	 * The maximum runtime allowed for both rescue and return, respectively, as
 	 * well as the units of these time value
 	 */
-	private static long rescueTimeout= 5;
-	private static long returnTimeout= 10;
-	private static TimeUnit timeUnit= TimeUnit.SECONDS;
+	private final long rescueTimeout;
+	private final long returnTimeout;
+	private final TimeUnit timeUnit;
+
+	/*
+	 * True iff the timeouts limit the CPU time of the solution rather than
+	 * the wall-clock time. Wall-clock time is then still limited, to
+	 * CPU_WALL_FACTOR times the timeout, so that a blocked solution ends.
+	 */
+	private boolean cpuTimeBudgets;
+	private static final long CPU_WALL_FACTOR= 10;
+
+	/* Wall-clock and CPU time used by each stage, in ns; -1 if not measured */
+	private long rescueWallTime= -1;
+	private long rescueCpuTime= -1;
+	private long returnWallTime= -1;
+	private long returnCpuTime= -1;
+
+	/* The most bytes each stage may allocate; -1 for no limit */
+	private long allocationBudget= -1;
+
+	/* True iff the bytes each stage allocates are measured */
+	private boolean measuringAllocation;
+
+	/* Bytes allocated by each stage; -1 if not measured */
+	private long rescueAllocatedBytes= -1;
+	private long returnAllocatedBytes= -1;
 
 	/* The lowest possible score, in case the solution fails */
 	public static final double MINIMUM_SCORE= Double.MAX_VALUE;
 
 	/* The increments in which speed should change */
-	private static final double DELTA_SPEED= 0.2;
+	static final double DELTA_SPEED= 0.2;
+
+	/* The speed and hit points of the ship at the start of a game */
+	static final double INITIAL_SPEED= 1;
+	static final int INITIAL_HP= 3;
 
 	/* The galaxy associated with this instance */
 	private final Board board;
@@ -65,56 +106,216 @@ public class GameState implements RescueStage, ReturnStage {
 	/* True if a solution timed out somewhere */
 	private boolean timedOut= false;
 
+	/* True if a solution allocated more than allocationBudget in some stage */
+	private boolean overAllocated= false;
+
 	/* True if the game was terminated prematurely */
-	private boolean terminated= false;
+	private volatile boolean terminated= false;
+
+	/* Carries the events of this game to the driver and other listeners */
+	private final GameEventBus events;
+
+	/* Every move, grab and stage transition of this game, in order */
+	private final MoveLog log= new MoveLog();
+
+	/*
+	 * What the ship observed when observe() was last called, at position then;
+	 * moveTo(long) does not update it
+	 */
+	private final Observation observation= new Observation();
+
+	/*
+	 * IDs of the planets whose upgrade the ship took, as in the nodes of board.
+	 * Shared with the Simulations made by simulate() iff grabbedShared, in
+	 * which case it is copied before it is changed.
+	 */
+	private GrowableBitSet grabbed;
+	private boolean grabbedShared;
+
+	/*
+	 * The time by which the current stage must end, on the clock of clock().
+	 * Set when the stage starts running.
+	 */
+	private volatile long deadline= Long.MAX_VALUE;
+
+	/*
+	 * The number of bytes, as counted by
+	 * TimedExecutor.currentThreadAllocatedBytes() less the game's own
+	 * allocation since the stage began, past which the current stage has
+	 * allocated more than allocationBudget; -1 for no limit. Set when the
+	 * stage starts running.
+	 */
+	private long allocationLimit= -1;
+
+	/*
+	 * ownAllocation() when the current stage began, and the bytes the game
+	 * itself allocated during the last stage, once it has ended. These are
+	 * left out of what the stage allocated, so that what is measured and
+	 * limited is the ship's code, not the listeners the driver subscribed.
+	 */
+	private long ownStart;
+	private volatile long ownUsed;
+
+	/* True once the current stage must stop: its time is up or the game ended */
+	private volatile boolean stopped;
+
+	/* Number of stage calls checked; the clock is read every CLOCK_PERIOD */
+	private int checks;
+	private static final int CLOCK_PERIOD= 64;
 
-	/* Executes threaded tasks - used for timed method execution */
-	private ExecutorService executor;
+	/* The timed task currently running rescue() or returnToEarth(), if any */
+	private volatile TimedExecutor.Task<?> task;
 
 	/**
 	 * Constructor: a new game instance with a Driver d, Board b, and with the
-	 * Spaceship used to solve the game.
+	 * Spaceship used to solve the game, using the default timeouts.
 	 */
 	public GameState(Driver d, Board b, Spaceship s) {
+		this(d, b, s, DEFAULT_RESCUE_TIMEOUT, DEFAULT_RETURN_TIMEOUT, DEFAULT_TIME_UNIT);
+	}
+
+	/**
+	 * Constructor: a new game instance with a Driver d, Board b, and with the
+	 * Spaceship used to solve the game, in which rescue and return time out
+	 * after rescueTimeout and returnTimeout units respectively.
+	 */
+	public GameState(Driver d, Board b, Spaceship s, long rescueTimeout, long returnTimeout,
+			TimeUnit unit) {
 		driver= d;
-		if (d instanceof GUIDriver) {
-			rescueTimeout= 10;
-			returnTimeout= 10;
-			timeUnit= TimeUnit.MINUTES;
-		}
+		events= new GameEventBus(d);
+		this.rescueTimeout= rescueTimeout;
+		this.returnTimeout= returnTimeout;
+		timeUnit= unit;
 		board= b;
 		ship= s;
 		position= board.getEarth();
 		timeElapsed= 0;
 		distance= 0;
-		speed= 1;
-		hp= 3;
+		speed= INITIAL_SPEED;
+		hp= INITIAL_HP;
 		rescueSuccessful= false;
 		returnSuccessful= false;
-		executor= Executors.newSingleThreadExecutor();
+		grabbed= new GrowableBitSet(board.getNodesSize());
 	}
 
 	/**
 	 * Run a function which returns a V wrapped in a Callable class which will
 	 * time out after a specified time frame. Return the function's V if the
-	 * function succeeds or null if it fails. Precondition: fun.toString()
-	 * returns a representation of the function
+	 * function succeeds or null if it fails. The function runs on the shared
+	 * TimedExecutor, and its time frame starts when it starts running; that is
+	 * also when the deadline checked by checkDeadline() is set. Time spent
+	 * waiting for a thread of the executor, when more games run than there are
+	 * threads, does not count. Precondition: fun.toString() returns a
+	 * representation of the function
 	 */
-	private <T> T withTimeout(long timeout, TimeUnit timeUnit, Callable<T> fun) {
-		Future<T> future= executor.submit(fun);
+	private <T> T withTimeout(long timeout, TimeUnit timeUnit, final Callable<T> fun) {
+		final long nanos= timeUnit.toNanos(timeout);
+		TimedExecutor.Task<T> t= TimedExecutor.shared().submit(new Callable<T>() {
+			@Override
+			public T call() throws Exception {
+				deadline= clock() + nanos;
+				ownStart= ownAllocation();
+				ownUsed= 0;
+				allocationLimit= allocationBudget < 0 ? -1
+						: TimedExecutor.currentThreadAllocatedBytes() + allocationBudget;
+				try {
+					return fun.call();
+				} finally {
+					ownUsed= ownAllocation() - ownStart;
+				}
+			}
+		});
+		task= t;
+		if (terminated)
+			t.abandon();
 		try {
-			return future.get(timeout, timeUnit);
+			T result= cpuTimeBudgets ? t.awaitCpu(timeout, CPU_WALL_FACTOR * timeout, timeUnit)
+					: t.await(timeout, timeUnit);
+			if (allocationBudget < 0 || shipAllocated(t) <= allocationBudget)
+				return result;
+			driver.errPrintln("Error: " + fun.toString() + " allocated more than "
+					+ allocationBudget + " bytes.");
+			overAllocated= true;
 		} catch (TimeoutException e) {
-			Driver.errPrintln("Error: " + fun.toString() + " timed out.");
+			stopped= true;
+			driver.errPrintln("Error: " + fun.toString() + " timed out.");
 			timedOut= true;
-		} catch (InterruptedException e) {
-			Driver.outPrintln("Interrupted " + fun.toString() + " - probably resetting.");
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof DeadlineExceededException && overAllocated) {
+				driver.errPrintln("Error: " + fun.toString() + " allocated more than "
+						+ allocationBudget + " bytes.");
+			} else if (e.getCause() instanceof DeadlineExceededException) {
+				driver.errPrintln("Error: " + fun.toString() + " timed out.");
+				timedOut= true;
+			} else {
+				driver.errPrintln("Error: " + fun.toString() + " threw " + e.toString());
+			}
+		} catch (InterruptedException | CancellationException e) {
+			t.abandon();
+			driver.outPrintln("Interrupted " + fun.toString() + " - probably resetting.");
 		} catch (Exception e) {
-			Driver.errPrintln("Error: " + fun.toString() + " threw " + e.toString());
+			driver.errPrintln("Error: " + fun.toString() + " threw " + e.toString());
 		}
 		return null;
 	}
 
+	/**
+	 * Return the number of bytes the game itself has allocated on the threads
+	 * that published its events and added to its log: its share of what a
+	 * stage's thread allocates that is not the ship's.
+	 */
+	private long ownAllocation() {
+		return events.getAllocatedBytes() + log.getAllocatedBytes();
+	}
+
+	/**
+	 * Return the number of bytes the ship's code allocated in the stage run
+	 * by t, not counting what the game itself allocated, or -1 if that cannot
+	 * be measured.
+	 */
+	private long shipAllocated(TimedExecutor.Task<?> t) {
+		if (!measuringAllocation)
+			return -1;
+		long a= t.getAllocatedBytes();
+		return a < 0 ? -1 : a - ownUsed;
+	}
+
+	/**
+	 * Return the current time of the clock stages are timed by, in ns: the CPU
+	 * time of the current thread if cpuTimeBudgets is set, otherwise
+	 * System.nanoTime().
+	 */
+	private long clock() {
+		if (cpuTimeBudgets)
+			return TimedExecutor.currentThreadCpuTime();
+		return System.nanoTime();
+	}
+
+	/**
+	 * Throw a DeadlineExceededException if the current stage must stop: the
+	 * game was terminated, the caller of run() gave up waiting, or, checked
+	 * once every CLOCK_PERIOD calls to keep this cheap, the clock is past the
+	 * deadline or the ship's code has allocated more than allocationBudget in
+	 * the stage. Called by the stage proxies before every method, so a
+	 * solution that overruns stops at its next call.
+	 */
+	private void checkDeadline() {
+		if (!stopped && ++checks % CLOCK_PERIOD == 0) {
+			if (clock() - deadline > 0) {
+				stopped= true;
+			} else if (allocationLimit >= 0 && TimedExecutor.currentThreadAllocatedBytes()
+					- (ownAllocation() - ownStart) > allocationLimit) {
+				overAllocated= true;
+				stopped= true;
+			}
+		}
+		if (stopped && overAllocated)
+			throw new DeadlineExceededException("Your solution allocated more than its budget of "
+					+ allocationBudget + " bytes.");
+		if (stopped)
+			throw new DeadlineExceededException("Your solution ran past its deadline.");
+	}
+
 	/**
 	 * Run through the game, one step at a time. Will run return() only if
 	 * rescue() succeeds. Both rescue() and return() are timed based on timeout
@@ -122,9 +323,9 @@ public class GameState implements RescueStage, ReturnStage {
 	 * fails.
 	 */
 	public double run() {
-		driver.setHp(hp);
-		driver.setSpeed(speed);
-		driver.setTime(timeElapsed);
+		events.valueChanged(GameEvent.HP, hp);
+		events.valueChanged(GameEvent.SPEED, speed);
+		events.valueChanged(GameEvent.TIME, timeElapsed);
 		Callable<Boolean> rescueFun= new Callable<Boolean>() {
 			@Override
 			public Boolean call() {
@@ -149,13 +350,19 @@ public class GameState implements RescueStage, ReturnStage {
 		};
 		double score= MINIMUM_SCORE;
 		Boolean rescueResult= withTimeout(rescueTimeout, timeUnit, rescueFun);
+		rescueWallTime= task.getWallTime();
+		rescueCpuTime= task.getCpuTime();
+		rescueAllocatedBytes= shipAllocated(task);
 		if (rescueResult != null && rescueResult) {
 			rescueSuccessful= true;
 			Boolean returnResult= withTimeout(returnTimeout, timeUnit, returnFun);
+			returnWallTime= task.getWallTime();
+			returnCpuTime= task.getCpuTime();
+			returnAllocatedBytes= shipAllocated(task);
 			if (returnResult != null && returnResult) {
 				returnSuccessful= true;
 				score= getScore();
-				Driver.outPrintln("Score: " + score);
+				driver.outPrintln("Score: " + score);
 			}
 		}
 		return score;
@@ -166,22 +373,25 @@ public class GameState implements RescueStage, ReturnStage {
 	 * fails.
 	 */
 	private boolean rescue() {
-		driver.beginRescueStage();
+		events.stageBegan(GameEvent.RESCUE_STAGE);
+		log.add(MoveLog.RESCUE, position.getId());
 		try {
 			ship.rescue(rescueStage());
+		} catch (DeadlineExceededException e) {
+			throw e;
 		} catch (Exception e) {
 			if (!terminated) {
 				if (e.getMessage() != null)
-					Driver.errPrintln(e.getMessage());
+					driver.errPrintln(e.getMessage());
 				else
-					Driver.errPrintln("Your solution to rescue() threw " + e.toString() + ".");
+					driver.errPrintln("Your solution to rescue() threw " + e.toString() + ".");
 			}
 			return false;
 		}
 		if (position.equals(board.getTarget())) {
 			return true;
 		} else {
-			Driver.errPrintln("Your solution to rescue() returned at the wrong location.");
+			driver.errPrintln("Your solution to rescue() returned at the wrong location.");
 			return false;
 		}
 	}
@@ -191,15 +401,18 @@ public class GameState implements RescueStage, ReturnStage {
 	 * it fails.
 	 */
 	private boolean returnToEarth() {
-		driver.beginReturnStage();
+		events.stageBegan(GameEvent.RETURN_STAGE);
+		log.add(MoveLog.RETURN, position.getId());
 		try {
 			ship.returnToEarth(returnStage());
+		} catch (DeadlineExceededException e) {
+			throw e;
 		} catch (Exception e) {
 			if (!terminated) {
 				if (e.getMessage() != null)
-					Driver.errPrintln(e.getMessage());
+					driver.errPrintln(e.getMessage());
 				else
-					Driver.errPrintln("Your solution to returnToEarth() threw " 
+					driver.errPrintln("Your solution to returnToEarth() threw " 
 							+ e.toString() + ".");
 			}
 			return false;
@@ -207,7 +420,7 @@ public class GameState implements RescueStage, ReturnStage {
 		if (position.equals(board.getEarth())) {
 			return true;
 		} else {
-			Driver.errPrintln("Your solution to returnToEarth() returned at the wrong location.");
+			driver.errPrintln("Your solution to returnToEarth() returned at the wrong location.");
 			return false;
 		}
 	}
@@ -234,6 +447,138 @@ public class GameState implements RescueStage, ReturnStage {
 		return returnSuccessful;
 	}
 
+	/**
+	 * Return the log of this game's moves, grabs and stage transitions. It is
+	 * written while the game runs; read it after run() returns.
+	 */
+	public MoveLog getMoveLog() {
+		return log;
+	}
+
+	/**
+	 * Return the bus on which this game publishes its events. Subscribe to it
+	 * before calling run().
+	 */
+	public GameEventBus getEventBus() {
+		return events;
+	}
+
+	/**
+	 * Make the timeouts limit the CPU time used by the solution iff b is true.
+	 * CPU time does not depend on how many other games are running, so
+	 * outcomes stay the same when games run in parallel. If b is true, this
+	 * turns on the measurement of thread CPU time for the whole JVM, if it is
+	 * off. Call this before run().
+	 * 
+	 * @throws UnsupportedOperationException
+	 *             if b is true and this JVM cannot measure thread CPU time.
+	 */
+	public void setCpuTimeBudgets(boolean b) {
+		if (b && !TimedExecutor.enableCpuTime())
+			throw new UnsupportedOperationException("Thread CPU time is not supported");
+		cpuTimeBudgets= b;
+	}
+
+	/** Return true iff the timeouts limit CPU time rather than wall-clock time. */
+	public boolean getCpuTimeBudgets() {
+		return cpuTimeBudgets;
+	}
+
+	/** Return the wall-clock time rescue() took, in ns, or -1 if it did not run. */
+	public long getRescueWallTime() {
+		return rescueWallTime;
+	}
+
+	/**
+	 * Return the CPU time rescue() used, in ns, or -1 if it did not run or CPU
+	 * time cannot be measured.
+	 */
+	public long getRescueCpuTime() {
+		return rescueCpuTime;
+	}
+
+	/**
+	 * Return the wall-clock time returnToEarth() took, in ns, or -1 if it did
+	 * not run.
+	 */
+	public long getReturnWallTime() {
+		return returnWallTime;
+	}
+
+	/**
+	 * Return the CPU time returnToEarth() used, in ns, or -1 if it did not run
+	 * or CPU time cannot be measured.
+	 */
+	public long getReturnCpuTime() {
+		return returnCpuTime;
+	}
+
+	/**
+	 * Make each stage fail, as if it had timed out, if the ship's code
+	 * allocates more than bytes bytes in it; a negative bytes means no limit.
+	 * What the game itself allocates, e.g. for the driver's listeners, does
+	 * not count, so the outcome does not depend on how much is printed. The
+	 * limit is checked as the solution calls the stage's methods and again
+	 * when the stage ends. If bytes >= 0, this calls measureAllocation().
+	 * Call this before run().
+	 * 
+	 * @throws UnsupportedOperationException
+	 *             if bytes >= 0 and this JVM cannot measure the bytes a thread
+	 *             allocates.
+	 */
+	public void setAllocationBudget(long bytes) {
+		if (bytes >= 0)
+			measureAllocation();
+		allocationBudget= bytes < 0 ? -1 : bytes;
+	}
+
+	/**
+	 * Measure the bytes the ship's code allocates in each stage, for
+	 * getRescueAllocatedBytes() and getReturnAllocatedBytes(). This turns on
+	 * the measurement of the bytes threads allocate for the whole JVM, if it
+	 * is off, and makes publishing an event a little slower, since what the
+	 * game allocates for it must be left out. Without a call to this or to
+	 * setAllocationBudget, nothing is measured. Call this before run().
+	 * 
+	 * @throws UnsupportedOperationException
+	 *             if this JVM cannot measure the bytes a thread allocates.
+	 */
+	public void measureAllocation() {
+		if (!TimedExecutor.enableAllocation())
+			throw new UnsupportedOperationException("Thread allocation is not measurable");
+		measuringAllocation= true;
+		events.countAllocation();
+	}
+
+	/** Return the most bytes each stage may allocate, or -1 if there is no limit. */
+	public long getAllocationBudget() {
+		return allocationBudget;
+	}
+
+	/**
+	 * Return the number of bytes the ship's code allocated in rescue(), not
+	 * counting what the game itself allocated to publish events (including
+	 * the driver's listeners) and log moves, or -1 if it did not run or
+	 * allocation is not measured (see measureAllocation()).
+	 */
+	public long getRescueAllocatedBytes() {
+		return rescueAllocatedBytes;
+	}
+
+	/**
+	 * Return the number of bytes the ship's code allocated in returnToEarth(),
+	 * counted as for getRescueAllocatedBytes(), or -1 if it did not run or
+	 * allocation is not measured.
+	 */
+	public long getReturnAllocatedBytes() {
+		return returnAllocatedBytes;
+	}
+
+	/** Return true iff a stage failed because it allocated more than its budget. */
+	public boolean getOverAllocated() {
+		return overAllocated;
+	}
+
 	/** Return timedOut. */
 	public boolean getTimedOut() {
 		return timedOut;
@@ -241,15 +586,33 @@ public class GameState implements RescueStage, ReturnStage {
 
 	/**
 	 * Return a collection of NodeStatuses containing each neighboring Node and
-	 * the ping strength from the neighboring Node to the target.
+	 * the ping strength from the neighboring Node to the target. The
+	 * collection is computed once, when the board is frozen, and is not
+	 * copied, so it cannot be modified.
 	 */
 	@Override
 	public Collection<NodeStatus> neighbors() {
-		Collection<NodeStatus> options= new ArrayList<>();
-		for (Map.Entry<Node, Integer> n : position.getNeighbors().entrySet()) {
-			options.add(new NodeStatus(n.getKey().getId(), board.getPing(n.getKey())));
-		}
-		return options;
+		return position.getNeighborStatuses();
+	}
+
+	/** Return the observation of the current location, updated in place. */
+	@Override
+	public Observation observe() {
+		observation.update(position, board.getPing(position), position == board.getTarget());
+		return observation;
+	}
+
+	/**
+	 * Move the ship to the Node whose ID is id and return the observation of
+	 * it.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if the Node isn't a neighbor of the current position.
+	 */
+	@Override
+	public Observation moveAndObserve(long id) {
+		moveTo(id);
+		return observe();
 	}
 
 	/** Return whether or not the crashed spaceship has been reached. */
@@ -273,7 +636,13 @@ public class GameState implements RescueStage, ReturnStage {
 	/** Return a Collection of every Node in the galaxy. */
 	@Override
 	public Collection<Node> allNodes() {
-		return Collections.unmodifiableSet(board.getNodes());
+		return board.getNodes();
+	}
+
+	/** Return the CSR snapshot of the galaxy. */
+	@Override
+	public BoardGraph getGraph() {
+		return board.getGraph();
 	}
 
 	/** Return time taken to travel distance d, based on current speed. */
@@ -289,21 +658,18 @@ public class GameState implements RescueStage, ReturnStage {
 	 */
 	@Override
 	public void moveTo(long id) {
-		for (Map.Entry<Node, Integer> entry : position.getNeighbors().entrySet()) {
-			Node n= entry.getKey();
-			if (n.getId() == id) {
-				driver.setNodeAndEdge(position, position.getConnect(n));
-				driver.moveShipAlong(position.getConnect(n));
-				int length= entry.getValue();
-				distance += length;
-				driver.setCumulativeDistance(distance);
-				timeElapsed += timeToTravel(length);
-				driver.setTime(timeElapsed);
-				position= n;
-				return;
-			}
-		}
-		throw new IllegalArgumentException("moveTo: Node must be adjacent to position");
+		int i= position.indexOfNeighbor(id);
+		if (i < 0)
+			throw new IllegalArgumentException("moveTo: Node must be adjacent to position");
+		Edge e= position.getExit(i);
+		events.moved(position, e);
+		int length= e.length;
+		distance += length;
+		events.valueChanged(GameEvent.DISTANCE, distance);
+		timeElapsed += timeToTravel(length);
+		events.valueChanged(GameEvent.TIME, timeElapsed);
+		position= e.getOther(position);
+		log.add(MoveLog.MOVE, position.getId());
 	}
 
 	/**
@@ -315,23 +681,25 @@ public class GameState implements RescueStage, ReturnStage {
 	 */
 	@Override
 	public void moveTo(Node n) {
-		if (!position.isConnectedTo(n))
+		int i= position.indexOfNeighbor(n.getId());
+		if (i < 0 || position.getNeighbor(i) != n)
 			throw new IllegalArgumentException("moveTo: Node must be adjacent to position");
 
-		driver.setNodeAndEdge(position, position.getConnect(n));
-		driver.moveShipAlong(position.getConnect(n));
-		int length= n.getConnect(position).length;
+		Edge e= position.getExit(i);
+		events.moved(position, e);
+		int length= e.length;
 		distance += length;
-		driver.setCumulativeDistance(distance);
+		events.valueChanged(GameEvent.DISTANCE, distance);
 		timeElapsed += timeToTravel(length);
-		driver.setTime(timeElapsed);
+		events.valueChanged(GameEvent.TIME, timeElapsed);
 		position= n;
+		log.add(MoveLog.MOVE, n.getId());
 		if (n.isHostile()) {
 			--hp;
-			driver.setHp(hp);
+			events.valueChanged(GameEvent.HP, hp);
 			if (speed > 1) {
 				speed -= DELTA_SPEED;
-				driver.setSpeed(speed);
+				events.valueChanged(GameEvent.SPEED, speed);
 			}
 		}
 
@@ -340,6 +708,113 @@ public class GameState implements RescueStage, ReturnStage {
 		}
 	}
 
+	/**
+	 * Travel along path, as described in ReturnStage.followPath(List, boolean).
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if a node of path is not adjacent to the one before it.
+	 * @throws IllegalStateException
+	 *             if too many hostile planets are visited.
+	 */
+	@Override
+	public void followPath(List<Node> path, boolean grab) {
+		Node[] route= new Node[path.size() + 1];
+		Edge[] edges= new Edge[path.size()];
+		route[0]= position;
+		int hops= 0;
+		boolean first= true;
+		for (Node n : path) {
+			if (first) {
+				first= false;
+				if (n == position)
+					continue;
+			}
+			Node prev= route[hops];
+			int i= prev.indexOfNeighbor(n.getId());
+			if (i < 0 || prev.getNeighbor(i) != n)
+				throw new IllegalArgumentException("followPath: Node " + n.getId()
+						+ " is not adjacent to the one before it");
+			edges[hops]= prev.getExit(i);
+			route[++hops]= n;
+		}
+		travel(route, edges, hops, grab);
+	}
+
+	/**
+	 * Travel along the nodes with the IDs in path, as described in
+	 * ReturnStage.followPath(List, boolean).
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if a node of path is not adjacent to the one before it.
+	 * @throws IllegalStateException
+	 *             if too many hostile planets are visited.
+	 */
+	@Override
+	public void followPath(long[] path, boolean grab) {
+		Node[] route= new Node[path.length + 1];
+		Edge[] edges= new Edge[path.length];
+		route[0]= position;
+		int hops= 0;
+		for (int k= 0; k < path.length; k++) {
+			long id= path[k];
+			if (k == 0 && id == position.getId())
+				continue;
+			Node prev= route[hops];
+			int i= prev.indexOfNeighbor(id);
+			if (i < 0)
+				throw new IllegalArgumentException("followPath: Node " + id
+						+ " is not adjacent to the one before it");
+			edges[hops]= prev.getExit(i);
+			route[++hops]= edges[hops - 1].getOther(prev);
+		}
+		travel(route, edges, hops, grab);
+	}
+
+	/**
+	 * Move the ship from route[0], which is its position, along edges[0..hops-1]
+	 * to route[1], ..., route[hops], grabbing speed upgrades on the way iff
+	 * grab is true. Updates are applied hop by hop exactly as moveTo(Node) and
+	 * grabSpeedUpgrade() would, but the new distance, time, HP and speed are
+	 * published once, at the end of the route.
+	 * 
+	 * @throws IllegalStateException
+	 *             if too many hostile planets are visited; the ship stops
+	 *             there.
+	 */
+	private void travel(Node[] route, Edge[] edges, int hops, boolean grab) {
+		int h= 0;
+		while (h < hops) {
+			events.moved(route[h], edges[h]);
+			int length= edges[h].length;
+			distance += length;
+			timeElapsed += timeToTravel(length);
+			Node n= route[++h];
+			position= n;
+			log.add(MoveLog.MOVE, n.getId());
+			if (n.isHostile()) {
+				--hp;
+				if (speed > 1)
+					speed -= DELTA_SPEED;
+				if (hp <= 0)
+					break;
+			}
+			if (grab && n.hasSpeedUpgrade()) {
+				speed += DELTA_SPEED;
+				n.setSpeedUpgrade(false);
+				markGrabbed(n);
+				log.add(MoveLog.GRAB, n.getId());
+				events.grabbed(n);
+			}
+		}
+
+		events.valueChanged(GameEvent.DISTANCE, distance);
+		events.valueChanged(GameEvent.TIME, timeElapsed);
+		events.valueChanged(GameEvent.HP, hp);
+		events.valueChanged(GameEvent.SPEED, speed);
+		if (hp <= 0)
+			throw new IllegalStateException("Visited too many hostile planets!");
+	}
+
 	/**
 	 * Grab the speed upgrade on the current Node. Throw an
 	 * IllegalArgumentException if the current Node doesn't have a speed
@@ -352,9 +827,36 @@ public class GameState implements RescueStage, ReturnStage {
 					"grabSpeedUpgrade: Error, no speed upgrade on this tile");
 		}
 		speed += DELTA_SPEED;
-		driver.setSpeed(speed);
-		driver.grabSpeedUpgrade(position);
+		events.valueChanged(GameEvent.SPEED, speed);
+		events.grabbed(position);
 		position.setSpeedUpgrade(false);
+		markGrabbed(position);
+		log.add(MoveLog.GRAB, position.getId());
+	}
+
+	/** Return the number of planet IDs grabbed has room for. */
+	int grabbedCapacity() {
+		return grabbed.capacity();
+	}
+
+	/** Record in grabbed that the upgrade on n was taken. */
+	private void markGrabbed(Node n) {
+		if (grabbedShared) {
+			grabbed= grabbed.copy();
+			grabbedShared= false;
+		}
+		grabbed.set((int) n.getId());
+	}
+
+	/**
+	 * Return a Simulation of this game as it is now, in constant time. Changes
+	 * to either do not affect the other.
+	 */
+	@Override
+	public Simulation simulate() {
+		grabbedShared= true;
+		return new Simulation(board, position, distance, timeElapsed, speed, hp,
+				rescueSuccessful, grabbed);
 	}
 
 	/** Return the current speed of the ship. */
@@ -386,8 +888,12 @@ public class GameState implements RescueStage, ReturnStage {
 
 	/** Terminate this game instance. */
 	public void terminate() {
-		executor.shutdownNow();
 		terminated= true;
+		stopped= true;
+		events.close();
+		TimedExecutor.Task<?> t= task;
+		if (t != null)
+			t.abandon();
 	}
 
 	/**
@@ -403,28 +909,45 @@ public class GameState implements RescueStage, ReturnStage {
 
 		@Override
 		public long currentLocation() {
+			gameState.checkDeadline();
 			return gameState.currentLocation();
 		}
 
 		@Override
 		public double getPing() {
+			gameState.checkDeadline();
 			return gameState.getPing();
 		}
 
 		@Override
 		public Collection<NodeStatus> neighbors() {
+			gameState.checkDeadline();
 			return gameState.neighbors();
 		}
 
 		@Override
 		public boolean foundSpaceship() {
+			gameState.checkDeadline();
 			return gameState.foundSpaceship();
 		}
 
 		@Override
 		public void moveTo(long id) {
+			gameState.checkDeadline();
 			gameState.moveTo(id);
 		}
+
+		@Override
+		public Observation observe() {
+			gameState.checkDeadline();
+			return gameState.observe();
+		}
+
+		@Override
+		public Observation moveAndObserve(long id) {
+			gameState.checkDeadline();
+			return gameState.moveAndObserve(id);
+		}
 	}
 
 	/**
@@ -440,31 +963,61 @@ public class GameState implements RescueStage, ReturnStage {
 
 		@Override
 		public Node currentNode() {
+			gameState.checkDeadline();
 			return gameState.currentNode();
 		}
 
 		@Override
 		public Node getEarth() {
+			gameState.checkDeadline();
 			return gameState.getEarth();
 		}
 
 		@Override
 		public Collection<Node> allNodes() {
+			gameState.checkDeadline();
 			return gameState.allNodes();
 		}
 
+		@Override
+		public BoardGraph getGraph() {
+			gameState.checkDeadline();
+			return gameState.getGraph();
+		}
+
+		@Override
+		public Simulation simulate() {
+			gameState.checkDeadline();
+			return gameState.simulate();
+		}
+
 		@Override
 		public void moveTo(Node n) {
+			gameState.checkDeadline();
 			gameState.moveTo(n);
 		}
 
+		@Override
+		public void followPath(List<Node> path, boolean grab) {
+			gameState.checkDeadline();
+			gameState.followPath(path, grab);
+		}
+
+		@Override
+		public void followPath(long[] path, boolean grab) {
+			gameState.checkDeadline();
+			gameState.followPath(path, grab);
+		}
+
 		@Override
 		public void grabSpeedUpgrade() {
+			gameState.checkDeadline();
 			gameState.grabSpeedUpgrade();
 		}
 
 		@Override
 		public double getSpeed() {
+			gameState.checkDeadline();
 			return gameState.getSpeed();
 		}
 	}
@@ -0,0 +1,73 @@
+package models;
+
+/**
+ * Static geometry routines on integer coordinates, used by board generation
+ * and Edge. Unlike Vector, nothing here allocates. Differences and products
+ * are computed in long arithmetic, so they are exact as long as every
+ * difference of two coordinates lies strictly between -2^31 and 2^31, as it
+ * does on any board; only differences of nearly 2^32 could overflow.
+ */
+final class Geometry {
+
+	/** Not instantiable. */
+	private Geometry() {
+	}
+
+	/**
+	 * Return the cross product of the vectors (ax, ay) -> (bx, by) and (ax, ay)
+	 * -> (cx, cy). It is positive if c is clockwise of the line a -> b in
+	 * screen coordinates (y pointing down), negative if counterclockwise, and
+	 * 0 if a, b and c are collinear.
+	 */
+	static long orientation(int ax, int ay, int bx, int by, int cx, int cy) {
+		return ((long) bx - ax) * ((long) cy - ay) - ((long) cx - ax) * ((long) by - ay);
+	}
+
+	/**
+	 * Return -1, 0 or 1 according to where (px, py) lies relative to the
+	 * segment (x1, y1) -> (x2, y2), with the same meaning as
+	 * java.awt.geom.Line2D.relativeCCW.
+	 */
+	static int relativeCCW(int x1, int y1, int x2, int y2, int px, int py) {
+		long dx= (long) x2 - x1;
+		long dy= (long) y2 - y1;
+		long qx= (long) px - x1;
+		long qy= (long) py - y1;
+		long ccw= qx * dy - qy * dx;
+		if (ccw == 0) {
+			// Collinear: classify by the projection of q onto the segment
+			ccw= qx * dx + qy * dy;
+			if (ccw > 0) {
+				// Measure from the other end of the segment
+				qx -= dx;
+				qy -= dy;
+				ccw= qx * dx + qy * dy;
+				if (ccw < 0)
+					ccw= 0;
+			}
+		}
+		return ccw < 0 ? -1 : (ccw > 0 ? 1 : 0);
+	}
+
+	/**
+	 * Return true iff the segment (x1, y1) -> (x2, y2) intersects the segment
+	 * (x3, y3) -> (x4, y4), including touching at an endpoint or overlapping
+	 * collinearly. Same result as java.awt.geom.Line2D.linesIntersect.
+	 */
+	static boolean segmentsIntersect(int x1, int y1, int x2, int y2,
+			int x3, int y3, int x4, int y4) {
+		return relativeCCW(x1, y1, x2, y2, x3, y3) * relativeCCW(x1, y1, x2, y2, x4, y4) <= 0
+				&& relativeCCW(x3, y3, x4, y4, x1, y1) * relativeCCW(x3, y3, x4, y4, x2, y2) <= 0;
+	}
+
+	/**
+	 * Return the angle, in radians in the range 0 .. PI, between the vectors
+	 * (ux, uy) and (vx, vy), computed exactly as Vector.radAngle does, so that
+	 * generated boards do not change. Return NaN if either vector has length 0
+	 * or rounding puts the cosine just outside -1 .. 1.
+	 */
+	static double angle(double ux, double uy, double vx, double vy) {
+		double cos= (ux * vx + uy * vy) / (Math.sqrt(ux * ux + uy * uy) * Math.sqrt(vx * vx + vy * vy));
+		return Math.acos(cos);
+	}
+}
@@ -0,0 +1,71 @@
+package models;
+
+/**
+ * A read-only graph of planets identified by dense indices 0 .. size()-1,
+ * traversed through primitive values rather than Node and Edge objects. Each
+ * undirected edge appears as two arcs, one leaving each of its exits. <br>
+ * <br>
+ * Arcs are visited with a cursor, which can be reused for any number of
+ * nodes:
+ *
+ * <pre>
+ * GraphView.ArcCursor c= g.arcs();
+ * c.reset(v);
+ * while (c.next()) {
+ * 	int w= c.target();
+ * 	int length= c.length();
+ * 	...
+ * }
+ * </pre>
+ */
+public interface GraphView {
+
+	/** Return the number of nodes in this graph. */
+	public int size();
+
+	/** Return the number of arcs leaving node v. */
+	public int degree(int v);
+
+	/** Return a new cursor over the arcs of this graph. */
+	public ArcCursor arcs();
+
+	/** Return true iff node v is hostile. */
+	public boolean isHostile(int v);
+
+	/** Return true iff node v has a speed upgrade. */
+	public boolean hasSpeedUpgrade(int v);
+
+	/** Return the x coordinate of node v. */
+	public int getX(int v);
+
+	/** Return the y coordinate of node v. */
+	public int getY(int v);
+
+	/**
+	 * An instance iterates over the arcs leaving one node of a GraphView at a
+	 * time. A cursor is not thread-safe; give each thread its own.
+	 */
+	public interface ArcCursor {
+
+		/** Position this cursor before the first arc leaving node v. */
+		public void reset(int v);
+
+		/**
+		 * Advance to the next arc leaving the current node. Return false if
+		 * there is none.
+		 */
+		public boolean next();
+
+		/**
+		 * Return the node at the end of the current arc. Precondition: the
+		 * last call of next() returned true.
+		 */
+		public int target();
+
+		/**
+		 * Return the length of the current arc. Precondition: the last call of
+		 * next() returned true.
+		 */
+		public int length();
+	}
+}
@@ -0,0 +1,210 @@
+package models;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import utils.collections.GrowableBitSet;
+
+/**
+ * An estimate of the number of heap bytes held by a Board, a GameState or a
+ * Simulation, broken down by component. <br>
+ * <br>
+ * Sizes follow the layout of a 64-bit HotSpot JVM with compressed oops (the
+ * default for heaps under 32 GB): 12-byte object headers, 16-byte array
+ * headers, 4-byte references, everything aligned to 8 bytes. The shallow size
+ * of each class is computed from its declared fields, so the estimate follows
+ * changes to the model classes without being updated by hand. Strings are
+ * assumed to be Latin-1 (one byte per char).
+ */
+public final class MemoryFootprint {
+
+	/* Layout constants of the assumed JVM */
+	private static final int OBJECT_HEADER= 12;
+	private static final int ARRAY_HEADER= 16;
+	private static final int REFERENCE= 4;
+	private static final int ALIGNMENT= 8;
+
+	/* Shallow sizes of classes already measured */
+	private static final Map<Class<?>, Long> shallowSizes= new ConcurrentHashMap<>();
+
+	private final String title; // What this footprint is of
+
+	private final LinkedHashMap<String, Long> components= new LinkedHashMap<>();
+
+	/** Constructor: an empty footprint of the thing described by title. */
+	private MemoryFootprint(String title) {
+		this.title= title;
+	}
+
+	/** Return the footprint of b, which must be frozen. */
+	public static MemoryFootprint of(Board b) {
+		if (!b.isFrozen())
+			throw new IllegalStateException("Board " + b.seed + " is not frozen");
+		int n= b.getNodesSize();
+		int m= b.getEdgesSize();
+		MemoryFootprint f= new MemoryFootprint("Board " + b.seed + " (" + n + " nodes, " 
+				+ m + " edges)");
+
+		EdgeIndex index= b.getEdgeIndex();
+		f.add("board", shallowSize(Board.class) + referenceArray(n) + referenceArray(m)
+				+ 2 * shallowSize(ArraySet.class) + shallowSize(EdgeIndex.class)
+				+ primitiveArray(index.capacity(), 8) + referenceArray(index.capacity()));
+
+		long nodes= 0;
+		long names= 0;
+		long statuses= n * shallowSize(NodeStatus.class);
+		for (Node node : b.getNodes()) {
+			nodes += shallowSize(Node.class) + shallowSize(node.getExits().getClass())
+					+ referenceArray(node.exitCapacity()) + primitiveArray(node.exitCapacity(), 4);
+			names += shallowSize(String.class) + primitiveArray(node.name.length(), 1);
+			List<NodeStatus> s= node.getNeighborStatuses();
+			statuses += shallowSize(s.getClass()) + shallowSize(Arrays.asList().getClass())
+					+ referenceArray(s.size());
+		}
+		f.add("nodes", nodes);
+		f.add("edges", m * (shallowSize(Edge.class) + referenceArray(2)));
+		f.add("names", names);
+		f.add("statuses", statuses);
+
+		BoardGraph g= b.getGraph();
+		f.add("graph", shallowSize(BoardGraph.class) + primitiveArray(n + 1, 4)
+				+ 2 * primitiveArray(g.arcCount(), 4) + 2 * primitiveArray((n + 63) / 64, 8)
+				+ 2 * primitiveArray(n, 4));
+		return f;
+	}
+
+	/**
+	 * Return the footprint of the per-game state of g: its fields and its
+	 * observation, its move log, its set of taken upgrades, and its event bus
+	 * with the queues of its asynchronous listeners and the events queued in
+	 * them. Each of an asynchronous listener's two queues is counted at the
+	 * listener's full capacity, which it reaches once the listener falls a
+	 * queue behind. Not included are the board, which can be measured with
+	 * of(Board); the listeners themselves, which belong to whoever subscribed
+	 * them; the threads of asynchronous listeners; and the events a listener's
+	 * thread has taken from its queue and is still delivering.
+	 */
+	public static MemoryFootprint of(GameState g) {
+		MemoryFootprint f= new MemoryFootprint("GameState");
+		f.add("state", shallowSize(GameState.class) + shallowSize(Observation.class));
+		MoveLog log= g.getMoveLog();
+		f.add("log", shallowSize(MoveLog.class) + primitiveArray(log.capacity(), 8));
+		f.add("upgrades", shallowSize(GrowableBitSet.class) + primitiveArray(g.grabbedCapacity() / 64, 8));
+
+		GameListener[] listeners= g.getEventBus().getListeners();
+		long events= shallowSize(GameEventBus.class) + referenceArray(listeners.length);
+		for (GameListener l : listeners) {
+			if (l instanceof GameEventBus.AsyncListener) {
+				GameEventBus.AsyncListener a= (GameEventBus.AsyncListener) l;
+				events += shallowSize(GameEventBus.AsyncListener.class)
+						+ 2 * (shallowSize(ArrayList.class) + referenceArray(a.capacity()))
+						+ a.queued() * shallowSize(GameEvent.class);
+			}
+		}
+		f.add("events", events);
+		return f;
+	}
+
+	/**
+	 * Return the footprint of s apart from its board and, if it shares it with
+	 * another instance, its set of taken upgrades.
+	 */
+	public static MemoryFootprint of(Simulation s) {
+		MemoryFootprint f= new MemoryFootprint("Simulation");
+		f.add("state", shallowSize(Simulation.class));
+		int n= s.journalCapacity();
+		if (n > 0) {
+			f.add("journal", referenceArray(n) + 3 * primitiveArray(n, 4) + 2 * primitiveArray(n, 8));
+		}
+		if (s.grabbedCapacity() > 0)
+			f.add("upgrades", shallowSize(GrowableBitSet.class) + primitiveArray(s.grabbedCapacity() / 64, 8));
+		return f;
+	}
+
+	/** Add component name of the given size to this footprint. */
+	private void add(String name, long bytes) {
+		Long old= components.get(name);
+		components.put(name, old == null ? bytes : old + bytes);
+	}
+
+	/** Return the estimated size of each component, in bytes. */
+	public Map<String, Long> getComponents() {
+		return Collections.unmodifiableMap(components);
+	}
+
+	/** Return the estimated total size, in bytes. */
+	public long getTotal() {
+		long total= 0;
+		for (long bytes : components.values()) {
+			total += bytes;
+		}
+		return total;
+	}
+
+	/**
+	 * Return a one-line summary, e.g. "Board 5: 41200 bytes (board 2048,
+	 * nodes 9000, ...)".
+	 */
+	@Override
+	public String toString() {
+		StringBuilder s= new StringBuilder();
+		s.append(title).append(": ").append(getTotal()).append(" bytes (");
+		String sep= "";
+		for (Map.Entry<String, Long> e : components.entrySet()) {
+			s.append(sep).append(e.getKey()).append(' ').append(e.getValue());
+			sep= ", ";
+		}
+		return s.append(')').toString();
+	}
+
+	/** Return the size of an array of length elements of elemSize bytes. */
+	private static long primitiveArray(long length, int elemSize) {
+		return align(ARRAY_HEADER + length * elemSize);
+	}
+
+	/** Return the size of an array of length references. */
+	private static long referenceArray(long length) {
+		return primitiveArray(length, REFERENCE);
+	}
+
+	/** Return the shallow size of an instance of class c. */
+	static long shallowSize(Class<?> c) {
+		Long size= shallowSizes.get(c);
+		if (size == null) {
+			long bytes= OBJECT_HEADER;
+			for (Class<?> k= c; k != null; k= k.getSuperclass()) {
+				for (Field fld : k.getDeclaredFields()) {
+					if (!Modifier.isStatic(fld.getModifiers()))
+						bytes += fieldSize(fld.getType());
+				}
+			}
+			size= align(bytes);
+			shallowSizes.put(c, size);
+		}
+		return size;
+	}
+
+	/** Return the number of bytes a field of type t occupies. */
+	private static int fieldSize(Class<?> t) {
+		if (t == long.class || t == double.class)
+			return 8;
+		if (t == int.class || t == float.class)
+			return 4;
+		if (t == short.class || t == char.class)
+			return 2;
+		if (t == byte.class || t == boolean.class)
+			return 1;
+		return REFERENCE;
+	}
+
+	/** Return bytes rounded up to the object alignment. */
+	private static long align(long bytes) {
+		return (bytes + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+	}
+}
@@ -0,0 +1,105 @@
+package models;
+
+import java.util.Arrays;
+
+/**
+ * An instance is the record of a game: every move, speed upgrade grab and
+ * stage transition, in the order they happened. A Replay can re-apply it to
+ * a board without running the ship's code. <br>
+ * <br>
+ * Entries are packed into an append-only long array, 8 bytes each: the type
+ * of the entry in the top 8 bits and the ID of the planet it concerns (where
+ * the ship moved to, grabbed an upgrade or began a stage) in the rest.
+ */
+public final class MoveLog {
+
+	/* Entry types */
+	public static final int MOVE= 0; // The ship moved to the planet
+	public static final int GRAB= 1; // The ship grabbed the planet's upgrade
+	public static final int RESCUE= 2; // The rescue stage began at the planet
+	public static final int RETURN= 3; // The return stage began at the planet
+
+	/* The names of the entry types, indexed by type */
+	private static final String[] TYPE_NAMES= { "MOVE", "GRAB", "RESCUE", "RETURN" };
+
+	private static final int TYPE_SHIFT= 56;
+	private static final long ID_MASK= (1L << TYPE_SHIFT) - 1;
+
+	private long[] entries; // The entries, packed; only the first size are used
+	private int size;
+
+	private long grown; // Bytes allocated by add() to make room for entries
+
+	/** Constructor: an empty log. */
+	public MoveLog() {
+		entries= new long[64];
+	}
+
+	/** Constructor: the log with the given packed entries, e.g. from toArray(). */
+	public MoveLog(long[] packed) {
+		entries= packed.clone();
+		size= packed.length;
+	}
+
+	/**
+	 * Append an entry of type type about the planet with ID id. Precondition:
+	 * type is one of MOVE, GRAB, RESCUE and RETURN, and 0 <= id < 2^56.
+	 */
+	void add(int type, long id) {
+		if (size == entries.length) {
+			entries= Arrays.copyOf(entries, 2 * size);
+			grown += 16 + 8L * entries.length;
+		}
+		entries[size++]= ((long) type << TYPE_SHIFT) | id;
+	}
+
+	/** Return the number of entries in this log. */
+	public int size() {
+		return size;
+	}
+
+	/** Return the type of entry i. Precondition: 0 <= i < size(). */
+	public int getType(int i) {
+		return (int) (entries[i] >>> TYPE_SHIFT);
+	}
+
+	/** Return the planet ID of entry i. Precondition: 0 <= i < size(). */
+	public long getId(int i) {
+		return entries[i] & ID_MASK;
+	}
+
+	/**
+	 * Return the number of bytes add() has allocated to make room for entries
+	 * (the new arrays, with 16-byte headers).
+	 */
+	long getAllocatedBytes() {
+		return grown;
+	}
+
+	/** Return the number of long slots this log has room for. */
+	int capacity() {
+		return entries.length;
+	}
+
+	/** Return the packed entries of this log, e.g. to save them. */
+	public long[] toArray() {
+		return Arrays.copyOf(entries, size);
+	}
+
+	/** Return a representation of this log, e.g. "[RESCUE 0, MOVE 12, ...]". */
+	@Override
+	public String toString() {
+		StringBuilder s= new StringBuilder("[");
+		for (int i= 0; i < size; i++) {
+			if (i > 0)
+				s.append(", ");
+			s.append(typeName(getType(i))).append(' ').append(getId(i));
+		}
+		return s.append(']').toString();
+	}
+
+	/** Return the name of entry type t. */
+	static String typeName(int t) {
+		return t >= 0 && t < TYPE_NAMES.length ? TYPE_NAMES[t] : "?" + t;
+	}
+}
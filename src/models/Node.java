@@ -26,17 +26,49 @@ public class Node implements BoardElement {
 
 	private boolean hostile; // true iff this planet is hostile
 
-	private boolean speedUp; // true iff this planet currently has a speed
-								// upgrade
+	private volatile boolean speedUp; // true iff this planet currently has
+										// a speed upgrade
 
-	private HashSet<Edge> exits; // Edges leaving this Node
+	/*
+	 * Edges leaving this Node, stored as parallel arrays: exitEdges[i] is the
+	 * i-th edge and neighborIds[i] is the ID of the node at its other end.
+	 * Only the first exitCount entries are in use.
+	 */
+	private Edge[] exitEdges;
+	private int[] neighborIds;
+	private int exitCount;
+
+	/*
+	 * The exits are kept in the order in which a HashSet<Edge> would iterate
+	 * them, because board generation and the games played on a board depend
+	 * on that order: exitHashes[i] is the spread hash exitEdges[i] had when it
+	 * was added, and exitBuckets is the number of buckets such a set would
+	 * have. See addExit(Edge). exitHashes is null once the board is frozen.
+	 */
+	private int[] exitHashes;
+	private int exitBuckets= INITIAL_EXIT_BUCKETS;
+
+	/* The number of buckets of a new HashSet, which doubles when it is 3/4 full */
+	private static final int INITIAL_EXIT_BUCKETS= 16;
+
+	/*
+	 * What the rescue stage observes of the neighbors: one NodeStatus per
+	 * exit, in exit order. Set when the board is frozen; null before.
+	 */
+	private List<NodeStatus> neighborStatuses;
+
+	/* Read-only Set view of the exits, returned by getExits() */
+	private final Set<Edge> exitSet= new ExitSet();
+
+	/* Initial capacity of the exit arrays; most planets have 2 or 3 exits */
+	private static final int INITIAL_EXIT_CAPACITY= 4;
 
 	/**
 	 * Constructor: a Node named name on Board m with ID id with no edges
 	 * leaving it
 	 */
 	Node(Board m, String name, long id) {
-		this(m, name, null, id, false, false);
+		this(m, name, id, false, false);
 	}
 
 	/**
@@ -49,35 +81,22 @@ public class Node implements BoardElement {
 	 *            - true iff this planet has a speed upgrade
 	 */
 	Node(Board m, String name, long id, boolean h, boolean s) {
-		this(m, name, null, id, h, s);
-	}
-
-	/**
-	 * Constructor: a Node named name on Board m with ID id with leaving edges
-	 * exits
-	 * 
-	 * @param h
-	 *            - true iff this planet is hostile
-	 * @param s
-	 *            - true iff this planet has a speed upgrade
-	 */
-	Node(Board m, String name, HashSet<Edge> exits, long id, boolean h, boolean s) {
 		this.board= m;
 		this.name= name;
 		this.id= id;
 		this.hostile= h;
 		this.speedUp= s;
-		this.exits= exits == null ? new HashSet<Edge>() : exits;
+		this.exitEdges= new Edge[INITIAL_EXIT_CAPACITY];
+		this.neighborIds= new int[INITIAL_EXIT_CAPACITY];
+		this.exitHashes= new int[INITIAL_EXIT_CAPACITY];
 	}
 
-	/** Return the set of edges leaving this node. */
-	HashSet<Edge> getMutableExits() {
-		return exits;
-	}
-
-	/** Return an immutable set of edges leaving this node. */
+	/**
+	 * Return an immutable set of edges leaving this node. The set is a view
+	 * backed by this Node; no copy is made.
+	 */
 	public Set<Edge> getExits() {
-		return Collections.unmodifiableSet(exits);
+		return exitSet;
 	}
 
 	/** Return this Node's ID */
@@ -87,64 +106,205 @@ public class Node implements BoardElement {
 
 	/**
 	 * Return a map of neighboring nodes to the lengths of the edges connecting
-	 * them to this Node. To iterate over a HashMap, use HashMap.entrySet().
+	 * them to this Node. To iterate over a HashMap, use HashMap.entrySet(). <br>
+	 * <br>
+	 * This allocates a new map on every call; prefer getExitsSize() together
+	 * with getNeighbor(i) and getNeighborLength(i) in performance-sensitive
+	 * code.
 	 */
 	public HashMap<Node, Integer> getNeighbors() {
 		HashMap<Node, Integer> neighbors= new HashMap<Node, Integer>();
-		for (Edge e : exits) {
-			neighbors.put(e.getOther(this), e.length);
+		for (int i= 0; i < exitCount; i++) {
+			neighbors.put(getNeighbor(i), exitEdges[i].length);
 		}
 		return neighbors;
 	}
 
-	/** Add e to this Node's set of exits */
+	/**
+	 * Return the i-th edge leaving this Node. Precondition: 0 <= i <
+	 * getExitsSize(). Indices follow the iteration order of getExits() and may
+	 * change if the board is modified.
+	 */
+	public Edge getExit(int i) {
+		return exitEdges[i];
+	}
+
+	/**
+	 * Return the neighbor at the other end of the i-th edge leaving this Node.
+	 * Precondition: 0 <= i < getExitsSize().
+	 */
+	public Node getNeighbor(int i) {
+		return exitEdges[i].getOther(this);
+	}
+
+	/**
+	 * Return the ID of the neighbor at the other end of the i-th edge leaving
+	 * this Node. Precondition: 0 <= i < getExitsSize().
+	 */
+	public long getNeighborId(int i) {
+		return neighborIds[i];
+	}
+
+	/**
+	 * Return the length of the i-th edge leaving this Node. Precondition: 0 <=
+	 * i < getExitsSize().
+	 */
+	public int getNeighborLength(int i) {
+		return exitEdges[i].length;
+	}
+
+	/**
+	 * Return the index of the exit leading to the neighbor with ID id, or -1
+	 * if there is no such neighbor. This is a scan of a handful of ints,
+	 * without allocation.
+	 */
+	public int indexOfNeighbor(long id) {
+		if (id < 0 || id > Integer.MAX_VALUE)
+			return -1;
+		for (int i= 0; i < exitCount; i++) {
+			if (neighborIds[i] == id)
+				return i;
+		}
+		return -1;
+	}
+
+	/**
+	 * Return the index of e among the exits of this Node, or -1 if e is not an
+	 * exit of this Node.
+	 */
+	private int indexOfExit(Edge e) {
+		for (int i= 0; i < exitCount; i++) {
+			if (exitEdges[i].equals(e))
+				return i;
+		}
+		return -1;
+	}
+
+	/**
+	 * Add e to this Node's set of exits (unless an equal edge is already one of
+	 * its exits). As in a HashSet, e goes after the exits in its bucket and in
+	 * earlier buckets, and the buckets double once they are more than 3/4
+	 * full, which keeps the exits in each bucket in the same relative order.
+	 */
 	void addExit(Edge e) {
-		exits.add(e);
+		if (indexOfExit(e) >= 0)
+			return;
+		if (exitCount == exitEdges.length) {
+			exitEdges= Arrays.copyOf(exitEdges, 2 * exitCount);
+			neighborIds= Arrays.copyOf(neighborIds, 2 * exitCount);
+			exitHashes= Arrays.copyOf(exitHashes, 2 * exitCount);
+		}
+		int h= e.hashCode();
+		h ^= h >>> 16;
+		int k= exitCount;
+		while (k > 0 && bucket(exitHashes[k - 1]) > bucket(h)) {
+			exitEdges[k]= exitEdges[k - 1];
+			neighborIds[k]= neighborIds[k - 1];
+			exitHashes[k]= exitHashes[k - 1];
+			k--;
+		}
+		exitEdges[k]= e;
+		neighborIds[k]= (int) e.getOther(this).getId();
+		exitHashes[k]= h;
+		exitCount++;
+		if (exitCount > exitBuckets / 4 * 3) {
+			exitBuckets *= 2;
+			// Insertion sort by new bucket; it is stable, as a HashSet's split is
+			for (int i= 1; i < exitCount; i++) {
+				Edge ei= exitEdges[i];
+				int ni= neighborIds[i];
+				int hi= exitHashes[i];
+				int j= i;
+				for (; j > 0 && bucket(exitHashes[j - 1]) > bucket(hi); j--) {
+					exitEdges[j]= exitEdges[j - 1];
+					neighborIds[j]= neighborIds[j - 1];
+					exitHashes[j]= exitHashes[j - 1];
+				}
+				exitEdges[j]= ei;
+				neighborIds[j]= ni;
+				exitHashes[j]= hi;
+			}
+		}
+	}
+
+	/** Return the bucket of spread hash h among the exitBuckets buckets. */
+	private int bucket(int h) {
+		return h & (exitBuckets - 1);
 	}
 
-	/** Remove e from this Node's set of exits */
+	/**
+	 * Remove e from this Node's set of exits. The remaining exits keep their
+	 * relative order.
+	 */
 	void removeExit(Edge e) {
-		exits.remove(e);
+		int i= indexOfExit(e);
+		if (i < 0)
+			return;
+		int tail= exitCount - i - 1;
+		System.arraycopy(exitEdges, i + 1, exitEdges, i, tail);
+		System.arraycopy(neighborIds, i + 1, neighborIds, i, tail);
+		System.arraycopy(exitHashes, i + 1, exitHashes, i, tail);
+		exitCount--;
+		exitEdges[exitCount]= null;
+	}
+
+	/**
+	 * Trim the exit arrays to their exact size, keeping their order, and drop
+	 * the hashes that kept them in order; the exits no longer change.
+	 */
+	void freeze() {
+		exitEdges= Arrays.copyOf(exitEdges, exitCount);
+		neighborIds= Arrays.copyOf(neighborIds, exitCount);
+		exitHashes= null;
+	}
+
+	/**
+	 * Return the statuses of the neighbors of this Node, in exit order, as an
+	 * unmodifiable list, or null if the board is not frozen yet.
+	 */
+	List<NodeStatus> getNeighborStatuses() {
+		return neighborStatuses;
+	}
+
+	/** Set the statuses of the neighbors of this Node to s. */
+	void setNeighborStatuses(List<NodeStatus> s) {
+		neighborStatuses= s;
+	}
+
+	/** Return the number of exits the exit arrays have room for. */
+	int exitCapacity() {
+		return exitEdges.length;
 	}
 
 	/** Return the number of exits from this node. */
 	public int getExitsSize() {
-		return exits.size();
+		return exitCount;
 	}
 
 	/** Return true iff r is connected to this Node. */
 	public boolean isExit(Edge r) {
-		return exits.contains(r);
+		return indexOfExit(r) >= 0;
 	}
 
 	/**
 	 * Return false if other.equals(this). Otherwise, return true iff one of the
 	 * edges in exits leads to Node other, (this is connected to other via a
-	 * single edge).
+	 * single edge). Takes constant expected time.
 	 */
 	public boolean isConnectedTo(Node other) {
 		if (other.equals(this))
 			return false;
-
-		for (Edge r : exits) {
-			if (r.isExit(other)) {
-				return true;
-			}
-		}
-		return false;
+		return getConnect(other) != null;
 	}
 
 	/**
 	 * Return the edge that this node shares with node n (null if not
-	 * connected).
+	 * connected). Takes constant expected time.
 	 */
 	public Edge getConnect(Node n) {
-		for (Edge r : exits) {
-			if (r.getOther(this).equals(n)) {
-				return r;
-			}
-		}
-		return null;
+		if (n.board != board)
+			return null;
+		return board.getEdge(id, n.id);
 	}
 
 	/** Return true iff this Planet */
@@ -174,8 +334,8 @@ public class Node implements BoardElement {
 	 */
 	@Override
 	public boolean equals(Object n) {
-		if (n == null)
-			return false;
+		if (n == this)
+			return true;
 		if (!(n instanceof Node))
 			return false;
 		return name.equals(((Node) n).name);
@@ -184,7 +344,11 @@ public class Node implements BoardElement {
 	/**
 	 * Return the hashCode of this node. Its hashCode is equal to the hashCode
 	 * of its name. This is guaranteed to be unique within the context of a
-	 * single game.
+	 * single game. <br>
+	 * <br>
+	 * Board generation iterates HashSets of nodes, so this must not change: a
+	 * different hash would generate a different board for the same seed. (It
+	 * is cheap all the same, since a String caches its hash.)
 	 */
 	@Override
 	public int hashCode() {
@@ -232,10 +396,35 @@ public class Node implements BoardElement {
 		return Math.sqrt((Math.pow(x - n.getX(), 2)) + (Math.pow(y - n.getY(), 2)));
 	}
 
-	/**
-	 * Return the vector from the center of this node to the center of node n.
-	 */
-	Vector getVectorTo(Node n) {
-		return new Vector(n.x - x, n.y - y);
+	/** A read-only Set view of the exits of the enclosing Node. */
+	private class ExitSet extends AbstractSet<Edge> {
+		@Override
+		public int size() {
+			return exitCount;
+		}
+
+		@Override
+		public boolean contains(Object o) {
+			return o instanceof Edge && indexOfExit((Edge) o) >= 0;
+		}
+
+		@Override
+		public Iterator<Edge> iterator() {
+			return new Iterator<Edge>() {
+				private int next= 0; // Index of the next exit to return
+
+				@Override
+				public boolean hasNext() {
+					return next < exitCount;
+				}
+
+				@Override
+				public Edge next() {
+					if (next >= exitCount)
+						throw new NoSuchElementException();
+					return exitEdges[next++];
+				}
+			};
+		}
 	}
 }
\ No newline at end of file
@@ -0,0 +1,97 @@
+package models;
+
+/**
+ * An instance is what the ship observes in the rescue stage at its current
+ * location: the location's ID and ping, whether the missing spaceship is
+ * there, and the ID and ping of each neighbor. It is returned by
+ * RescueStage.observe() and RescueStage.moveAndObserve(long). <br>
+ * <br>
+ * A game has a single Observation, which is updated in place by every call
+ * of observe() or moveAndObserve(long), so nothing is allocated per step.
+ * Read what you need from it before the next such call, or copy it. A plain
+ * moveTo(long) does not update it: it goes on describing the location it was
+ * last updated at until observe() is called again.
+ */
+public final class Observation {
+
+	private Node node; // The observed location
+
+	private double ping; // The ping at node
+
+	private boolean found; // True iff the missing spaceship is at node
+
+	/**
+	 * Constructor: an observation of nothing yet. Until the first update, the
+	 * ping is 0, foundSpaceship() is false and the location-dependent getters
+	 * throw an IllegalStateException. Callers outside this package never see
+	 * such an observation, since observe() and moveAndObserve(long) update it
+	 * before returning it.
+	 */
+	Observation() {}
+
+	/** Make this an observation of Node n, whose ping is p. */
+	void update(Node n, double p, boolean foundSpaceship) {
+		node= n;
+		ping= p;
+		found= foundSpaceship;
+	}
+
+	/**
+	 * Return the ID of the observed location.
+	 *
+	 * @throws IllegalStateException
+	 *             if nothing has been observed yet
+	 */
+	public long getLocation() throws IllegalStateException {
+		return observed().getId();
+	}
+
+	/** Return the strength of the distress signal at the observed location. */
+	public double getPing() {
+		return ping;
+	}
+
+	/** Return true iff the missing spaceship is at the observed location. */
+	public boolean foundSpaceship() {
+		return found;
+	}
+
+	/**
+	 * Return the number of neighbors of the observed location.
+	 *
+	 * @throws IllegalStateException
+	 *             if nothing has been observed yet
+	 */
+	public int getNeighborCount() throws IllegalStateException {
+		return observed().getExitsSize();
+	}
+
+	/**
+	 * Return the ID of the i-th neighbor of the observed location.
+	 * Precondition: 0 <= i < getNeighborCount().
+	 *
+	 * @throws IllegalStateException
+	 *             if nothing has been observed yet
+	 */
+	public long getNeighborId(int i) throws IllegalStateException {
+		return observed().getNeighborId(i);
+	}
+
+	/**
+	 * Return the strength of the distress signal at the i-th neighbor of the
+	 * observed location. Precondition: 0 <= i < getNeighborCount().
+	 *
+	 * @throws IllegalStateException
+	 *             if nothing has been observed yet
+	 */
+	public double getNeighborPing(int i) throws IllegalStateException {
+		return observed().getNeighborStatuses().get(i).getPingToTarget();
+	}
+
+	/** Return the observed Node, throwing an IllegalStateException if none. */
+	private Node observed() {
+		if (node == null)
+			throw new IllegalStateException("Nothing has been observed yet");
+		return node;
+	}
+}
@@ -0,0 +1,455 @@
+package models;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+
+/**
+ * A read-only galaxy whose coordinates, adjacency, edge lengths and flags are
+ * stored outside the Java heap, in direct buffers. It holds no object per
+ * planet or per edge, so galaxies of many millions of planets cost a few
+ * dozen bytes of native memory per planet and almost nothing on the heap, and
+ * add nothing to GC work. <br>
+ * <br>
+ * Adjacency is in compressed-sparse-row form, like BoardGraph: the arcs leaving
+ * planet v are stored contiguously, each as a (target, length) pair of ints.
+ * Code that wants Node-like access to a planet uses a NodeView, a flyweight
+ * that holds nothing but the planet's index. A NodeView is not a Node, so a
+ * Spaceship, which plays through Node, RescueStage and ReturnStage, cannot
+ * play on an instance; it is for code written against GraphView, such as
+ * PathFunctions.shortestPath(GraphView, int, int). <br>
+ * <br>
+ * Build an instance with an OffHeapBoard.Builder, or copy any GraphView (for
+ * example a generated Board's BoardGraph) with of(GraphView).
+ */
+public final class OffHeapBoard implements GraphView {
+
+	/* Bits of the flags byte of a planet */
+	private static final byte HOSTILE= 1;
+	private static final byte UPGRADE= 2;
+
+	private final int size; // Number of planets
+
+	private final int arcCount; // Number of arcs (twice the number of edges)
+
+	private final IntBuffer coords; // x, y of planet v at 2v, 2v+1
+
+	private final ByteBuffer flags; // Flags of planet v at v
+
+	private final IntBuffer offsets; // Arcs of v are offsets[v] .. offsets[v+1]-1
+
+	private final IntBuffer arcs; // Target, length of arc a at 2a, 2a+1
+
+	private final int earth; // Index of Earth, or -1 if there is none
+
+	/** Constructor: an instance with the given (already filled) storage. */
+	private OffHeapBoard(int size, int arcCount, IntBuffer coords, ByteBuffer flags,
+			IntBuffer offsets, IntBuffer arcs, int earth) {
+		this.size= size;
+		this.arcCount= arcCount;
+		this.coords= coords;
+		this.flags= flags;
+		this.offsets= offsets;
+		this.arcs= arcs;
+		this.earth= earth;
+	}
+
+	/**
+	 * Return an off-heap copy of g. Earth is the planet with index earth, or
+	 * there is none if earth is -1.
+	 */
+	public static OffHeapBoard of(GraphView g, int earth) {
+		int n= g.size();
+		int arcs= 0;
+		for (int v= 0; v < n; v++) {
+			arcs += g.degree(v);
+		}
+
+		Builder b= new Builder(n, 0);
+		b.arcCount= arcs;
+		b.offsets= intBuffer(n + 1L);
+		b.arcs= intBuffer(2L * arcs);
+		GraphView.ArcCursor c= g.arcs();
+		int a= 0;
+		for (int v= 0; v < n; v++) {
+			b.setNode(v, g.getX(v), g.getY(v), g.isHostile(v), g.hasSpeedUpgrade(v));
+			b.offsets.put(v, a);
+			c.reset(v);
+			while (c.next()) {
+				b.arcs.put(2 * a, c.target());
+				b.arcs.put(2 * a + 1, c.length());
+				a++;
+			}
+		}
+		b.offsets.put(n, a);
+		if (earth >= 0)
+			b.setEarth(earth);
+		return b.finish();
+	}
+
+	/** Return a new native-order direct buffer of n ints. */
+	private static IntBuffer intBuffer(long n) throws IllegalArgumentException {
+		if (n > Integer.MAX_VALUE / 4)
+			throw new IllegalArgumentException("Too large for one buffer: " + n + " ints");
+		return ByteBuffer.allocateDirect((int) (4 * n)).order(ByteOrder.nativeOrder()).asIntBuffer();
+	}
+
+	/** Return the number of planets in this galaxy. */
+	@Override
+	public int size() {
+		return size;
+	}
+
+	/** Return the number of arcs (twice the number of edges) in this galaxy. */
+	public int arcCount() {
+		return arcCount;
+	}
+
+	/** Return the index of Earth, or -1 if no planet is Earth. */
+	public int earth() {
+		return earth;
+	}
+
+	/** Return the number of bytes of native memory used by this galaxy. */
+	public long nativeBytes() {
+		return 4L * coords.capacity() + flags.capacity() + 4L * offsets.capacity()
+				+ 4L * arcs.capacity();
+	}
+
+	/** Return the index of the first arc leaving planet v. */
+	public int firstArc(int v) {
+		return offsets.get(v);
+	}
+
+	/** Return one past the index of the last arc leaving planet v. */
+	public int endArc(int v) {
+		return offsets.get(v + 1);
+	}
+
+	/** Return the planet at the end of arc a. */
+	public int target(int a) {
+		return arcs.get(2 * a);
+	}
+
+	/** Return the length of arc a. */
+	public int length(int a) {
+		return arcs.get(2 * a + 1);
+	}
+
+	@Override
+	public int degree(int v) {
+		return offsets.get(v + 1) - offsets.get(v);
+	}
+
+	@Override
+	public ArcCursor arcs() {
+		return new ArcCursor() {
+			private int arc; // The current arc
+			private int end; // One past the last arc of the current planet
+
+			@Override
+			public void reset(int v) {
+				arc= offsets.get(v) - 1;
+				end= offsets.get(v + 1);
+			}
+
+			@Override
+			public boolean next() {
+				return ++arc < end;
+			}
+
+			@Override
+			public int target() {
+				return arcs.get(2 * arc);
+			}
+
+			@Override
+			public int length() {
+				return arcs.get(2 * arc + 1);
+			}
+		};
+	}
+
+	@Override
+	public boolean isHostile(int v) {
+		return (flags.get(v) & HOSTILE) != 0;
+	}
+
+	@Override
+	public boolean hasSpeedUpgrade(int v) {
+		return (flags.get(v) & UPGRADE) != 0;
+	}
+
+	@Override
+	public int getX(int v) {
+		return coords.get(2 * v);
+	}
+
+	@Override
+	public int getY(int v) {
+		return coords.get(2 * v + 1);
+	}
+
+	/** Return a flyweight view of planet v. */
+	public NodeView node(int v) {
+		if (v < 0 || v >= size)
+			throw new IndexOutOfBoundsException("No planet " + v);
+		return new NodeView(v);
+	}
+
+	/**
+	 * A flyweight view of one planet of an OffHeapBoard, with the read-only
+	 * methods of Node. It holds only the planet's index; everything else is
+	 * read from the board's buffers on demand.
+	 */
+	public final class NodeView {
+		private final int index; // Index of the planet this views
+
+		/** Constructor: a view of planet v. */
+		private NodeView(int v) {
+			index= v;
+		}
+
+		/** Return this planet's ID (its index). */
+		public long getId() {
+			return index;
+		}
+
+		/** Return the x location of this planet. */
+		public int getX() {
+			return OffHeapBoard.this.getX(index);
+		}
+
+		/** Return the y location of this planet. */
+		public int getY() {
+			return OffHeapBoard.this.getY(index);
+		}
+
+		/** Return true iff this planet is hostile. */
+		public boolean isHostile() {
+			return OffHeapBoard.this.isHostile(index);
+		}
+
+		/** Return true iff this planet has a speed upgrade. */
+		public boolean hasSpeedUpgrade() {
+			return OffHeapBoard.this.hasSpeedUpgrade(index);
+		}
+
+		/** Return the number of exits from this planet. */
+		public int getExitsSize() {
+			return degree(index);
+		}
+
+		/**
+		 * Return the ID of the neighbor at the other end of the i-th exit.
+		 * Precondition: 0 <= i < getExitsSize().
+		 */
+		public long getNeighborId(int i) {
+			return target(firstArc(index) + i);
+		}
+
+		/**
+		 * Return the neighbor at the other end of the i-th exit. Precondition:
+		 * 0 <= i < getExitsSize().
+		 */
+		public NodeView getNeighbor(int i) {
+			return new NodeView(target(firstArc(index) + i));
+		}
+
+		/**
+		 * Return the length of the i-th exit. Precondition: 0 <= i <
+		 * getExitsSize().
+		 */
+		public int getNeighborLength(int i) {
+			return length(firstArc(index) + i);
+		}
+
+		/** Return true iff this planet is connected to other by an edge. */
+		public boolean isConnectedTo(NodeView other) {
+			for (int a= firstArc(index); a < endArc(index); a++) {
+				if (target(a) == other.index)
+					return true;
+			}
+			return false;
+		}
+
+		/** Return true iff ob is a view of the same planet of the same board. */
+		@Override
+		public boolean equals(Object ob) {
+			if (!(ob instanceof NodeView))
+				return false;
+			NodeView n= (NodeView) ob;
+			return n.index == index && n.board() == OffHeapBoard.this;
+		}
+
+		@Override
+		public int hashCode() {
+			return index;
+		}
+
+		/** Return the board this view belongs to. */
+		private OffHeapBoard board() {
+			return OffHeapBoard.this;
+		}
+
+		/** Return the ID and coordinates of this planet. */
+		@Override
+		public String toString() {
+			return String.format("%s: (%s, %s)", index, getX(), getY());
+		}
+	}
+
+	/**
+	 * An instance assembles an OffHeapBoard with a fixed number of planets.
+	 * Edges are staged off-heap as well and arranged into adjacency lists by
+	 * build(), so no per-edge objects are created at any point.
+	 */
+	public static final class Builder {
+		private final int size; // Number of planets
+
+		private final IntBuffer coords; // As in OffHeapBoard
+		private final ByteBuffer flags;
+
+		private final IntBuffer edges; // a, b, length of edge i at 3i .. 3i+2
+		private int edgeCount; // Number of edges added so far
+
+		private int earth= -1; // Index of Earth, or -1
+
+		/* Filled in by build() or OffHeapBoard.of() */
+		private int arcCount;
+		private IntBuffer offsets;
+		private IntBuffer arcs;
+
+		private boolean built; // True once this builder has made its board
+
+		/**
+		 * Constructor: a builder for a galaxy of n planets, with room for up to
+		 * maxEdges edges. Every planet starts at (0, 0), neither hostile nor
+		 * with an upgrade.
+		 */
+		public Builder(int n, int maxEdges) {
+			if (n < 0 || maxEdges < 0)
+				throw new IllegalArgumentException("Negative size");
+			size= n;
+			coords= intBuffer(2L * n);
+			flags= ByteBuffer.allocateDirect(n);
+			edges= intBuffer(3L * maxEdges);
+		}
+
+		/**
+		 * Set the coordinates, hostility and upgrade of planet v.
+		 *
+		 * @throws IllegalStateException
+		 *             if this builder has already made its board
+		 */
+		public void setNode(int v, int x, int y, boolean hostile, boolean upgrade) {
+			checkBuilding();
+			checkNode(v);
+			coords.put(2 * v, x);
+			coords.put(2 * v + 1, y);
+			flags.put(v, (byte) ((hostile ? HOSTILE : 0) | (upgrade ? UPGRADE : 0)));
+		}
+
+		/**
+		 * Make planet v Earth.
+		 *
+		 * @throws IllegalStateException
+		 *             if this builder has already made its board
+		 */
+		public void setEarth(int v) {
+			checkBuilding();
+			checkNode(v);
+			earth= v;
+		}
+
+		/**
+		 * Add an edge of the given length between planets a and b.
+		 *
+		 * @throws IllegalArgumentException
+		 *             if a == b, length < 1, or the builder is out of room
+		 * @throws IllegalStateException
+		 *             if this builder has already made its board
+		 */
+		public void addEdge(int a, int b, int length) throws IllegalArgumentException {
+			checkBuilding();
+			checkNode(a);
+			checkNode(b);
+			if (a == b)
+				throw new IllegalArgumentException("Edge from planet " + a + " to itself");
+			if (length < 1)
+				throw new IllegalArgumentException("Illegal length " + length);
+			if (3 * edgeCount >= edges.capacity())
+				throw new IllegalArgumentException("No room for more than " + edgeCount + " edges");
+			edges.put(3 * edgeCount, a);
+			edges.put(3 * edgeCount + 1, b);
+			edges.put(3 * edgeCount + 2, length);
+			edgeCount++;
+		}
+
+		/**
+		 * Return the galaxy assembled by this builder. The builder can't be
+		 * used afterwards: the board shares its buffers.
+		 *
+		 * @throws IllegalStateException
+		 *             if this builder has already made its board
+		 */
+		public OffHeapBoard build() {
+			checkBuilding();
+			arcCount= 2 * edgeCount;
+			offsets= intBuffer(size + 1L);
+			arcs= intBuffer(2L * arcCount);
+
+			// Count the arcs of each planet, then turn counts into offsets
+			for (int i= 0; i < edgeCount; i++) {
+				int a= edges.get(3 * i) + 1;
+				int b= edges.get(3 * i + 1) + 1;
+				offsets.put(a, offsets.get(a) + 1);
+				offsets.put(b, offsets.get(b) + 1);
+			}
+			for (int v= 1; v <= size; v++) {
+				offsets.put(v, offsets.get(v) + offsets.get(v - 1));
+			}
+
+			// Place each arc. fill[v] is the next free arc of planet v.
+			IntBuffer fill= intBuffer(size);
+			for (int v= 0; v < size; v++) {
+				fill.put(v, offsets.get(v));
+			}
+			for (int i= 0; i < edgeCount; i++) {
+				int a= edges.get(3 * i);
+				int b= edges.get(3 * i + 1);
+				int length= edges.get(3 * i + 2);
+				int fa= fill.get(a);
+				arcs.put(2 * fa, b);
+				arcs.put(2 * fa + 1, length);
+				fill.put(a, fa + 1);
+				int fb= fill.get(b);
+				arcs.put(2 * fb, a);
+				arcs.put(2 * fb + 1, length);
+				fill.put(b, fb + 1);
+			}
+			return finish();
+		}
+
+		/** Return the board with this builder's storage. */
+		private OffHeapBoard finish() {
+			built= true;
+			return new OffHeapBoard(size, arcCount, coords, flags, offsets, arcs, earth);
+		}
+
+		/**
+		 * Throw an IllegalStateException if this builder has made its board,
+		 * whose buffers it would otherwise write into.
+		 */
+		private void checkBuilding() {
+			if (built)
+				throw new IllegalStateException("Board already built");
+		}
+
+		/** Throw an IndexOutOfBoundsException if v is not a planet. */
+		private void checkNode(int v) {
+			if (v < 0 || v >= size)
+				throw new IndexOutOfBoundsException("No planet " + v);
+		}
+	}
+}
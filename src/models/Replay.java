@@ -0,0 +1,197 @@
+package models;
+
+import controllers.Driver;
+
+/**
+ * An instance is the outcome of replaying a MoveLog on a board: the logged
+ * moves and grabs are re-applied under the rules of GameState, without running
+ * any ship code, so a game can be checked or re-rendered at memory speed. <br>
+ * <br>
+ * The state of the game is kept in a Simulation, so the board is not
+ * modified: speed upgrades that were grabbed are tracked by the simulation,
+ * which uses the upgrades the board was generated with. So a board can be
+ * replayed any number of times, even the board the game was played on.
+ * Timeouts are not part of the log, so a replay of a game that timed out ends
+ * where the log ends.
+ */
+public final class Replay {
+
+	private final Board board; // The board the log is replayed on
+
+	private final Driver driver; // Told about each step; null if none
+
+	private final Simulation sim; // The state of the replayed game
+
+	private int stage= -1; // MoveLog.RESCUE or MoveLog.RETURN; -1 before both
+
+	private boolean rescued; // True iff the rescue stage ended on the target
+
+	/** Constructor: a replay on Board b, reporting to Driver d (may be null). */
+	private Replay(Board b, Driver d) {
+		board= b;
+		driver= d;
+		sim= Simulation.start(b);
+	}
+
+	/**
+	 * Return the outcome of replaying log on b.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if log is not a legal game on b.
+	 */
+	public static Replay of(Board b, MoveLog log) {
+		return of(b, log, null);
+	}
+
+	/**
+	 * Return the outcome of replaying log on b, telling d about every step as
+	 * GameState would (e.g. to re-render the game). d may be null.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if log is not a legal game on b.
+	 * @throws IllegalStateException
+	 *             if b is not frozen.
+	 */
+	public static Replay of(Board b, MoveLog log, Driver d) {
+		Replay r= new Replay(b, d);
+		for (int i= 0; i < log.size(); i++) {
+			r.apply(i, log.getType(i), log.getId(i));
+		}
+		return r;
+	}
+
+	/**
+	 * Apply entry i of the log, of type type about the planet with ID id.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if the entry is not legal in the current state.
+	 */
+	private void apply(int i, int type, long id) {
+		if (sim.getHp() <= 0)
+			throw illegal(i, type, id, "the ship has no hit points left");
+		Node n= board.getNode(id);
+		if (n == null)
+			throw illegal(i, type, id, "there is no such planet");
+
+		if (type == MoveLog.RESCUE) {
+			if (stage != -1 || n != board.getEarth())
+				throw illegal(i, type, id, "the rescue must begin first, on Earth");
+			stage= MoveLog.RESCUE;
+			if (driver != null)
+				driver.beginRescueStage();
+		} else if (type == MoveLog.RETURN) {
+			if (stage != MoveLog.RESCUE || n != sim.getPosition() || n != board.getTarget())
+				throw illegal(i, type, id, "the return must begin where the rescue ended, on the target");
+			stage= MoveLog.RETURN;
+			sim.beginReturn();
+			rescued= true;
+			if (driver != null)
+				driver.beginReturnStage();
+		} else if (type == MoveLog.MOVE) {
+			move(i, n);
+		} else if (type == MoveLog.GRAB) {
+			if (stage != MoveLog.RETURN || n != sim.getPosition())
+				throw illegal(i, type, id, "upgrades can only be grabbed on the current planet, on return");
+			if (!sim.hasSpeedUpgrade(id))
+				throw illegal(i, type, id, "there is no upgrade left");
+			sim.grabSpeedUpgrade();
+			if (driver != null) {
+				driver.setSpeed(sim.getSpeed());
+				driver.grabSpeedUpgrade(n);
+			}
+		} else {
+			throw illegal(i, type, id, "unknown entry type");
+		}
+	}
+
+	/**
+	 * Move the ship to Node n, as GameState.moveTo does: hostile planets only
+	 * cost hit points and speed in the return stage.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if no stage has begun or n is not adjacent to the ship.
+	 */
+	private void move(int i, Node n) {
+		Node position= sim.getPosition();
+		int k= stage == -1 ? -1 : position.indexOfNeighbor(n.getId());
+		if (k < 0)
+			throw illegal(i, MoveLog.MOVE, n.getId(), "it is not adjacent to the ship");
+		if (driver == null) {
+			sim.moveTo(n.getId());
+			return;
+		}
+		Edge e= position.getExit(k);
+		driver.setNodeAndEdge(position, e);
+		driver.moveShipAlong(e);
+		int hp= sim.getHp();
+		double speed= sim.getSpeed();
+		sim.moveTo(n.getId());
+		driver.setCumulativeDistance(sim.getDistance());
+		driver.setTime(sim.getTime());
+		if (sim.getHp() != hp) {
+			driver.setHp(sim.getHp());
+			if (sim.getSpeed() != speed)
+				driver.setSpeed(sim.getSpeed());
+		}
+	}
+
+	/** Return the exception for illegal entry i of type type about id. */
+	private static IllegalArgumentException illegal(int i, int type, long id, String why) {
+		return new IllegalArgumentException("Replay: entry " + i + " (" + MoveLog.typeName(type)
+				+ " " + id + ") is illegal: " + why);
+	}
+
+	/** Return true iff the rescue stage ended on the target. */
+	public boolean getRescueSucceeded() {
+		return rescued;
+	}
+
+	/**
+	 * Return true iff the replayed game rescued the missing spaceship and
+	 * returned to Earth without running out of hit points.
+	 */
+	public boolean getReturnSucceeded() {
+		return stage == MoveLog.RETURN && sim.getHp() > 0 && sim.getPosition() == board.getEarth();
+	}
+
+	/**
+	 * Return the score of the replayed game: the time elapsed if it succeeded,
+	 * otherwise GameState.MINIMUM_SCORE.
+	 */
+	public double getScore() {
+		return getReturnSucceeded() ? sim.getTime() : GameState.MINIMUM_SCORE;
+	}
+
+	/** Return the Node the ship ended on (null if the log is empty). */
+	public Node getPosition() {
+		return stage == -1 ? null : sim.getPosition();
+	}
+
+	/** Return the cumulative distance traveled. */
+	public int getDistance() {
+		return sim.getDistance();
+	}
+
+	/** Return the time elapsed. */
+	public double getTime() {
+		return sim.getTime();
+	}
+
+	/** Return the speed of the ship at the end. */
+	public double getSpeed() {
+		return sim.getSpeed();
+	}
+
+	/** Return the hit points of the ship at the end. */
+	public int getHp() {
+		return sim.getHp();
+	}
+
+	/**
+	 * Return a Simulation of the replayed game where it ended, e.g. to try
+	 * other continuations of it.
+	 */
+	public Simulation simulate() {
+		return sim.fork();
+	}
+}
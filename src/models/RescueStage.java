@@ -31,7 +31,8 @@ public interface RescueStage {
 	 * 1, where 0 is the farthest away, and 1 is the volume on the planet that
 	 * has the missing spaceship.)<br>
 	 * <br>
-	 * It is possible to move directly to any node in this collection.
+	 * It is possible to move directly to any node in this collection. The
+	 * collection cannot be modified.
 	 */
 	public Collection<NodeStatus> neighbors();
 
@@ -50,4 +51,24 @@ public interface RescueStage {
 	 *             location.
 	 */
 	public void moveTo(long id);
+
+	/**
+	 * Return what you observe at your current location: its ID and ping,
+	 * whether the missing spaceship is there, and the ID and ping of each
+	 * neighbor. The Observation is reused: the next call of observe() or
+	 * moveAndObserve(long) updates it in place, but moveTo(long) does not, so
+	 * after moveTo it describes the location you left until you call observe()
+	 * again.
+	 */
+	public Observation observe();
+
+	/**
+	 * Change the current location to the node given by id, as moveTo(id)
+	 * does, and return what you observe there, as observe() does.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if the node with ID id is not adjacent to your current
+	 *             location.
+	 */
+	public Observation moveAndObserve(long id);
 }
\ No newline at end of file
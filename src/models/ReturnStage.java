@@ -1,6 +1,7 @@
 package models;
 
 import java.util.Collection;
+import java.util.List;
 
 /**
  * In the return stage, you must safely return to Earth as quickly as possible.
@@ -28,6 +29,20 @@ public interface ReturnStage {
 	 */
 	public Collection<Node> allNodes();
 
+	/**
+	 * Return an immutable snapshot of the whole galaxy in compressed-sparse-row
+	 * form, for searches over primitive arrays rather than Node and Edge
+	 * objects. A planet's index in the snapshot is its Node's ID.
+	 */
+	public BoardGraph getGraph();
+
+	/**
+	 * Return a Simulation of the game as it is now, in constant time, to try
+	 * out moves on without making them. Forks of it are also cheap, so it can
+	 * be used to explore many routes.
+	 */
+	public Simulation simulate();
+
 	/**
 	 * Change your location to n.
 	 * 
@@ -36,6 +51,28 @@ public interface ReturnStage {
 	 */
 	public void moveTo(Node n);
 
+	/**
+	 * Travel along path, moving to each of its nodes in turn, and also pick
+	 * up the speed upgrade on each node of path that has one iff grab is true.
+	 * path may start with your current location. This has the same effect as
+	 * calling moveTo (and grabSpeedUpgrade) once per node, but the whole route
+	 * is checked first and then applied in one go, so it is much cheaper.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if a node of path is not adjacent to the one before it; in
+	 *             that case you do not move at all.
+	 * @throws IllegalStateException
+	 *             if too many hostile planets are visited; you stop on the
+	 *             planet where this happens.
+	 */
+	public void followPath(List<Node> path, boolean grab);
+
+	/**
+	 * Travel along the nodes with the IDs in path, as in followPath(List,
+	 * boolean).
+	 */
+	public void followPath(long[] path, boolean grab);
+
 	/**
 	 * Pick up the speed upgrade on the current tile.
 	 * 
@@ -0,0 +1,277 @@
+package models;
+
+import java.util.Arrays;
+import utils.collections.GrowableBitSet;
+
+/**
+ * An instance is a what-if copy of a game: the ship's position, distance,
+ * time, speed and hit points, and the speed upgrades taken so far, over a
+ * board that is shared and never modified. Moves and grabs follow the rules
+ * of GameState, but nothing is published, logged or timed, so a strategy can
+ * try out routes as fast as the arithmetic allows. <br>
+ * <br>
+ * fork() makes an independent copy in constant time: the set of taken
+ * upgrades is shared until either copy grabs an upgrade, which then copies it
+ * for itself. Each change is also recorded in a journal, so rollback(mark())
+ * undoes the changes made since mark() in time proportional to their number.
+ * Together they support lookahead searches that explore many continuations of
+ * one state. <br>
+ * <br>
+ * An instance is not thread-safe, but different forks may be used on
+ * different threads.
+ */
+public final class Simulation {
+
+	/* The value of grab in a journal entry for a change that grabbed nothing */
+	private static final int NO_GRAB= -1;
+
+	/* The value of grab in a journal entry for beginReturn() */
+	private static final int BEGAN_RETURN= -2;
+
+	private final Board board; // The board simulated on; shared, never modified
+
+	private final BoardGraph graph; // The board's graph
+
+	private Node position; // The current position of the ship
+
+	private int distance; // The cumulative distance traveled
+
+	private double time; // The time elapsed
+
+	private double speed; // The current speed
+
+	private int hp; // The current hit points
+
+	private boolean returning; // True iff hostile planets cost hp and speed
+
+	/* IDs of planets whose upgrade was taken; shared with other instances iff shared */
+	private GrowableBitSet grabbed;
+	private boolean shared;
+
+	/*
+	 * The journal: entry k holds the state before the k-th change (the
+	 * position, distance, time, speed and hp) and what it grabbed (NO_GRAB,
+	 * BEGAN_RETURN or the ID of the planet). Allocated on the first change.
+	 */
+	private Node[] jPosition;
+	private int[] jDistance;
+	private double[] jTime;
+	private double[] jSpeed;
+	private int[] jHp;
+	private int[] jGrab;
+	private int jSize;
+
+	/**
+	 * Constructor: an instance on b with the given state, where g holds the IDs
+	 * of the planets whose upgrade was taken. g is shared, not copied: it is
+	 * copied before this instance changes it, and the caller must do the same.
+	 */
+	Simulation(Board b, Node pos, int dist, double t, double sp, int h, boolean ret,
+			GrowableBitSet g) {
+		board= b;
+		graph= b.getGraph();
+		position= pos;
+		distance= dist;
+		time= t;
+		speed= sp;
+		hp= h;
+		returning= ret;
+		grabbed= g;
+		shared= true;
+	}
+
+	/**
+	 * Return an instance at the start of a game on b: on Earth, in the rescue
+	 * stage, with every upgrade the board was generated with still there.
+	 *
+	 * @throws IllegalStateException
+	 *             if b is not frozen.
+	 */
+	public static Simulation start(Board b) {
+		if (!b.isFrozen())
+			throw new IllegalStateException("Board " + b.seed + " is not frozen");
+		Simulation s= new Simulation(b, b.getEarth(), 0, 0, GameState.INITIAL_SPEED,
+				GameState.INITIAL_HP, false, new GrowableBitSet(b.getNodesSize()));
+		s.shared= false;
+		return s;
+	}
+
+	/**
+	 * Return an independent copy of this instance, in constant time. Its
+	 * journal is empty, so it cannot be rolled back past this call.
+	 */
+	public Simulation fork() {
+		shared= true;
+		return new Simulation(board, position, distance, time, speed, hp, returning, grabbed);
+	}
+
+	/**
+	 * Return a mark of the current state, to be passed to rollback(int). Marks
+	 * are only valid for this instance.
+	 */
+	public int mark() {
+		return jSize;
+	}
+
+	/**
+	 * Undo every change made since mark() returned m.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if m is not a mark of the current state or an earlier one.
+	 */
+	public void rollback(int m) {
+		if (m < 0 || m > jSize)
+			throw new IllegalArgumentException("rollback: " + m + " is not a mark of this state");
+		while (jSize > m) {
+			int k= --jSize;
+			position= jPosition[k];
+			distance= jDistance[k];
+			time= jTime[k];
+			speed= jSpeed[k];
+			hp= jHp[k];
+			if (jGrab[k] == BEGAN_RETURN)
+				returning= false;
+			else if (jGrab[k] != NO_GRAB)
+				writableGrabbed().clear(jGrab[k]);
+			jPosition[k]= null;
+		}
+	}
+
+	/** Record the current state in the journal, before a change that grabs g. */
+	private void record(int g) {
+		if (jPosition == null) {
+			jPosition= new Node[16];
+			jDistance= new int[16];
+			jTime= new double[16];
+			jSpeed= new double[16];
+			jHp= new int[16];
+			jGrab= new int[16];
+		} else if (jSize == jPosition.length) {
+			int n= 2 * jSize;
+			jPosition= Arrays.copyOf(jPosition, n);
+			jDistance= Arrays.copyOf(jDistance, n);
+			jTime= Arrays.copyOf(jTime, n);
+			jSpeed= Arrays.copyOf(jSpeed, n);
+			jHp= Arrays.copyOf(jHp, n);
+			jGrab= Arrays.copyOf(jGrab, n);
+		}
+		jPosition[jSize]= position;
+		jDistance[jSize]= distance;
+		jTime[jSize]= time;
+		jSpeed[jSize]= speed;
+		jHp[jSize]= hp;
+		jGrab[jSize]= g;
+		jSize++;
+	}
+
+	/** Return grabbed, copying it first if it is shared. */
+	private GrowableBitSet writableGrabbed() {
+		if (shared) {
+			grabbed= grabbed.copy();
+			shared= false;
+		}
+		return grabbed;
+	}
+
+	/**
+	 * Begin the return stage: from now on, moving to a hostile planet costs a
+	 * hit point and speed, as in GameState.moveTo(Node).
+	 */
+	public void beginReturn() {
+		if (returning)
+			return;
+		record(BEGAN_RETURN);
+		returning= true;
+	}
+
+	/**
+	 * Move the ship to the Node whose ID is id, as GameState does. Unlike
+	 * GameState, running out of hit points throws nothing: see getHp().
+	 *
+	 * @throws IllegalArgumentException
+	 *             if the Node isn't a neighbor of the current position.
+	 */
+	public void moveTo(long id) {
+		int i= position.indexOfNeighbor(id);
+		if (i < 0)
+			throw new IllegalArgumentException("moveTo: Node must be adjacent to position");
+		Edge e= position.getExit(i);
+		record(NO_GRAB);
+		distance += e.length;
+		time += e.length / speed;
+		position= e.getOther(position);
+		if (returning && position.isHostile()) {
+			--hp;
+			if (speed > 1)
+				speed -= GameState.DELTA_SPEED;
+		}
+	}
+
+	/**
+	 * Grab the speed upgrade on the current Node.
+	 *
+	 * @throws IllegalStateException
+	 *             if there is no upgrade left on the current Node.
+	 */
+	public void grabSpeedUpgrade() {
+		int id= (int) position.getId();
+		if (!hasSpeedUpgrade(id))
+			throw new IllegalStateException("grabSpeedUpgrade: Error, no speed upgrade on this tile");
+		record(id);
+		writableGrabbed().set(id);
+		speed += GameState.DELTA_SPEED;
+	}
+
+	/** Return true iff the planet with ID id still has a speed upgrade. */
+	public boolean hasSpeedUpgrade(long id) {
+		return graph.hasSpeedUpgrade((int) id) && !grabbed.get((int) id);
+	}
+
+	/** Return the board simulated on. */
+	public Board getBoard() {
+		return board;
+	}
+
+	/** Return the Node the ship is on. */
+	public Node getPosition() {
+		return position;
+	}
+
+	/** Return the cumulative distance traveled. */
+	public int getDistance() {
+		return distance;
+	}
+
+	/** Return the time elapsed, which is the score if the ship is on Earth. */
+	public double getTime() {
+		return time;
+	}
+
+	/** Return the current speed of the ship. */
+	public double getSpeed() {
+		return speed;
+	}
+
+	/** Return the hit points of the ship; the game is lost if this is <= 0. */
+	public int getHp() {
+		return hp;
+	}
+
+	/** Return true iff this instance is in the return stage. */
+	public boolean isReturning() {
+		return returning;
+	}
+
+	/**
+	 * Return the number of planet IDs the set of taken upgrades has room for,
+	 * or 0 if the set is shared with another instance.
+	 */
+	int grabbedCapacity() {
+		return shared ? 0 : grabbed.capacity();
+	}
+
+	/** Return the number of slots the journal has room for. */
+	int journalCapacity() {
+		return jPosition == null ? 0 : jPosition.length;
+	}
+}
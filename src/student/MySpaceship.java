@@ -1,19 +1,18 @@
 package student;
 
-import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.List;
 
 import models.Node;
-import models.NodeStatus;
+import models.Observation;
 import models.RescueStage;
 import models.ReturnStage;
 import models.Spaceship;
+import utils.collections.LongLongMap;
 	
 /** An instance implements the methods needed to complete the mission */
 public class MySpaceship extends Spaceship {
-	public HashMap<Long, Long> parent = new HashMap<Long, Long>();
-	//<visited/current location id, parent location id
+	public LongLongMap parent = new LongLongMap(-1);
+	//<visited/current location id, parent location id (-1 if none)>
 	
 	/**
 	 * Explore the galaxy, trying to find the missing spaceship that has crashed
@@ -37,28 +36,29 @@ public class MySpaceship extends Spaceship {
 	@Override
 	public void rescue(RescueStage state) {
 		// TODO : Find the missing spaceship
-		if (state.foundSpaceship()) return;
-		boolean unvisitednb = false;
-		long nextid = 0;
-		double maxping = 0;
-		double thisping = 0;
-		for (NodeStatus a: state.neighbors()){
-			if (!parent.containsKey(a.getId())) {
-				thisping = a.getPingToTarget();
-				if(!unvisitednb || thisping > maxping){
-					nextid = a.getId();
-					maxping = thisping;
+		Observation o = state.observe();
+		while (!o.foundSpaceship()) {
+			boolean unvisitednb = false;
+			long nextid = 0;
+			double maxping = 0;
+			double thisping = 0;
+			for (int i = 0; i < o.getNeighborCount(); i++){
+				long id = o.getNeighborId(i);
+				if (!parent.containsKey(id)) {
+					thisping = o.getNeighborPing(i);
+					if(!unvisitednb || thisping > maxping){
+						nextid = id;
+						maxping = thisping;
+					}
+					unvisitednb = true;
 				}
-				unvisitednb = true;
 			}
-		}
-		if(unvisitednb){
-			parent.put(nextid, state.currentLocation());
-			state.moveTo(nextid);
-			rescue(state);
-		}else{
-			state.moveTo(parent.get(state.currentLocation()));
-			rescue(state);
+			if(unvisitednb){
+				parent.put(nextid, o.getLocation());
+				o = state.moveAndObserve(nextid);
+			}else{
+				o = state.moveAndObserve(parent.get(o.getLocation()));
+			}
 		}
 	}
 	
@@ -86,28 +86,24 @@ public class MySpaceship extends Spaceship {
 	@Override
 	public void returnToEarth(ReturnStage state) {
 		// TODO: Return to Earth
-		int count=0;
-
 		if (state.currentNode().equals(state.getEarth())) {return;}
 		
 		List<Node> path = Paths.shortestPath(state.currentNode(), state.getEarth());
-		LinkedList<Node> finalpath =(LinkedList<Node>) path;
 
-		for(int i=1;i<finalpath.size();i++){
-			if(finalpath.get(i).isHostile()){count++;}
-			if(count<3){
-				state.moveTo(finalpath.get(i));
-				if(state.currentNode().hasSpeedUpgrade()){
-					state.grabSpeedUpgrade();
-				}
-			}
-			else{
-				path = Paths.shortestPathwoH(state.currentNode(), state.getEarth());
-				finalpath =(LinkedList<Node>) path;
-				count = 0;
-				i=0;
+		while(true){
+			// follow the path up to (not including) its third hostile planet
+			int count=0;
+			int end=0;
+			for(Node n : path){
+				if(n.isHostile() && end>0){count++;}
+				if(count>=3){break;}
+				end++;
 			}
+			state.followPath(path.subList(0, end), true);
+			if(end==path.size()){return;}
 
+			path = Paths.shortestPathwoH(state.currentNode(), state.getEarth());
+			if(path.isEmpty()){path = Paths.shortestPath(state.currentNode(), state.getEarth());}
 		}
 	}
 
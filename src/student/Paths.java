@@ -1,6 +1,5 @@
 
 package student;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
@@ -8,8 +7,14 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import models.BoardGraph;
 import models.Edge;
+import models.FilteredGraph;
+import models.GraphView;
 import models.Node;
+import utils.PathFunctions;
+import utils.collections.LongIntMap;
+import utils.collections.LongLongMap;
 
 /** This class contains Dijkstra's shortest-path algorithm and some other methods. */
 public class Paths {
@@ -21,31 +26,34 @@ public class Paths {
         /* TODO Read note A7 FAQs on the course piazza for ALL details. */
         Heap<Node> F= new Heap<Node>(); // As in lecture slides
 
-        // map contains an entry for each node in S or F. Thus,
-        // |map| = |S| + |F|.
-        // For each such key-node, the value part contains the shortest known
-        // distance to the node and the node's backpointer on that shortest path.
-        HashMap<Node, SFdata> map= new HashMap<Node, SFdata>();
+        // dist and back contain an entry for the ID of each node in S or F.
+        // Thus, |dist| = |back| = |S| + |F|. For each such ID, dist gives the
+        // shortest known distance to the node and back gives the ID of the
+        // node's backpointer on that shortest path (-1 for start).
+        LongIntMap dist= new LongIntMap(-1);
+        LongLongMap back= new LongLongMap(-1);
 
         F.add(start, 0);
-        map.put(start, new SFdata(0, null));
-        // invariant: as in lecture slides, together with def of F and map
+        dist.put(start.getId(), 0);
+        back.put(start.getId(), -1);
+        // invariant: as in lecture slides, together with def of F, dist and back
         while (F.size() != 0) {
             Node f= F.poll();
-            if (f == end) return constructPath(end, map);
-            int fDist= map.get(f).distance;
+            if (f == end) return constructPath(end, back);
+            int fDist= dist.get(f.getId());
             
             for (Edge e : f.getExits()) {// for each neighbor w of f
                 Node w= e.getOther(f);
                 int newWdist= fDist + e.length;
-                SFdata wData= map.get(w);
+                int wDist= dist.get(w.getId());
 
-                if (wData == null) { //if w not in S or F
-                    map.put(w, new SFdata(newWdist, f));
+                if (wDist < 0) { //if w not in S or F
+                    dist.put(w.getId(), newWdist);
+                    back.put(w.getId(), f.getId());
                     F.add(w, newWdist);
-                } else if (newWdist < wData.distance) {
-                    wData.distance= newWdist;
-                    wData.backPointer= f;
+                } else if (newWdist < wDist) {
+                    dist.put(w.getId(), newWdist);
+                    back.put(w.getId(), f.getId());
                     F.updatePriority(w, newWdist);
                 }
             }
@@ -55,59 +63,44 @@ public class Paths {
         return new LinkedList<Node>();
     }
     
-    /** Return the shortest path from start to end without any hostile nodes,
-	 * or the empty list if a path does not exist. */
-    public static List<Node> shortestPathwoH(Node start, Node end) {
-		/* TODO Read note A7 FAQs on the course piazza for ALL details. */
-		Heap<Node> F= new Heap<Node>(); // As in lecture slides
-
-		// map contains an entry for each node in S or F. Thus,
-		// |map| = |S| + |F|.
-		// For each such key-node, the value part contains the shortest known
-		// distance to the node and the node's backpointer on that shortest path.
-		HashMap<Node, SFdata> map= new HashMap<Node, SFdata>();
-
-		F.add(start, 0);
-		map.put(start, new SFdata(0, null));
-		// invariant: as in lecture slides, together with def of F and map
-		while (F.size() != 0) {
-			Node f= F.poll();
-			if (f == end) return constructPath(end, map);
-			int fDist= map.get(f).distance;
-
-			for (Edge e : f.getExits()) {// for each neighbor w of f
-				Node w= e.getOther(f);
-				int newWdist= fDist + e.length;
-				if(w.isHostile()){newWdist=Integer.MAX_VALUE;}
-				SFdata wData= map.get(w);
+    /** Return the indices of the nodes on the shortest path from start to end
+     * in g, or an empty array if a path does not exist. Uses only primitive
+     * arrays, so it works on galaxies far too large for Node objects
+     * (e.g. an OffHeapBoard). */
+    public static int[] shortestPath(GraphView g, int start, int end) {
+        return PathFunctions.shortestPath(g, start, end);
+    }
 
-				if (wData == null) { //if w not in S or F
-					map.put(w, new SFdata(newWdist, f));
-					F.add(w, newWdist);
-				} else if (newWdist < wData.distance) {
-					wData.distance= newWdist;
-					wData.backPointer= f;
-					F.updatePriority(w, newWdist);
-				}
-			}
-		}
+    /** Return the shortest path from start to end without any hostile nodes
+     * other than start and end themselves, or the empty list if a path does
+     * not exist. The search runs on the subgraph of the board's graph induced
+     * by the non-hostile nodes, so it never touches a hostile node.
+     * Precondition: the board of start and end is frozen. */
+    public static List<Node> shortestPathwoH(Node start, Node end) {
+        BoardGraph g= start.getBoard().getGraph();
+        int s= g.indexOf(start);
+        int t= g.indexOf(end);
+        int[] p= shortestPath(FilteredGraph.withoutHostiles(g, s, t), s, t);
 
-		// no path from start to end
-		return new LinkedList<Node>();
-	}
-    
+        LinkedList<Node> path= new LinkedList<Node>();
+        for (int v : p) {
+            path.add(g.node(v));
+        }
+        return path;
+    }
 
     /** Return the path from the start node to node end.
-     *  Precondition: nData contains all the necessary information about
-     *  the path. */
-    public static List<Node> constructPath(Node end, HashMap<Node, SFdata> nData) {
+     *  Precondition: back maps the ID of each node on the path to the ID of
+     *  its backpointer, and the ID of the start node to -1. */
+    public static List<Node> constructPath(Node end, LongLongMap back) {
         LinkedList<Node> path= new LinkedList<Node>();
         Node p= end;
         // invariant: All the nodes from p's successor to the end are in
         //            path, in reverse order.
         while (p != null) {
             path.addFirst(p);
-            p= nData.get(p).backPointer;
+            long b= back.get(p.getId());
+            p= b < 0 ? null : p.getBoard().getNode(b);
         }
         return path;
     }
@@ -128,24 +121,4 @@ public class Paths {
             return s;
         }
     }
-
-    /** An instance contains information about a node: the previous node
-     *  on a shortest path from the start node to this node and the distance
-     *  of this node from the start node. */
-    private static class SFdata {
-        private Node backPointer; // backpointer on path from start node to this one
-        private int distance; // distance from start node to this one
-
-        /** Constructor: an instance with distance d from the start node and
-         *  backpointer p.*/
-        private SFdata(int d, Node p) {
-            distance= d;     // Distance from start node to this one.
-            backPointer= p;  // Backpointer on the path (null if start node)
-        }
-
-        /** return a representation of this instance. */
-        public String toString() {
-            return "dist " + distance + ", bckptr " + backPointer;
-        }
-    }
 }
@@ -1,6 +1,7 @@
 package utils;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
@@ -8,6 +9,7 @@ import java.util.List;
 import java.util.Map.Entry;
 
 import models.Edge;
+import models.GraphView;
 import models.Node;
 
 /** This class contains Dijkstra's shortest-path algorithm and some other methods. */
@@ -55,6 +57,62 @@ public class PathFunctions {
     return new LinkedList<Node>(); // no path found
   }
   
+  /** Return the indices of the nodes on the shortest path from start to end in
+   *  g, or an empty array if a path does not exist. Works on primitive arrays
+   *  only: memory is five ints per node of g (dist, backPointer, and the
+   *  heap's items, priority and index), whatever g's storage. */
+  public static int[] shortestPath(GraphView g, int start, int end) {
+    int n= g.size();
+    int[] dist= new int[n];
+    int[] backPointer= new int[n];
+    Arrays.fill(dist, Integer.MAX_VALUE);
+    IntHeap F= new IntHeap(n);
+    GraphView.ArcCursor arcs= g.arcs();
+
+    dist[start]= 0;
+    backPointer[start]= -1;
+    F.add(start, 0);
+
+    // invariant: As presented in notes for Lecture 20, with dist[w] ==
+    // Integer.MAX_VALUE iff w is in the far-out set
+    while (F.size() > 0) {
+      int f= F.poll();
+      if (f == end)
+        return constructPath(end, backPointer);
+
+      arcs.reset(f);
+      while (arcs.next()) {
+        int w= arcs.target();
+        int distToW= dist[f] + arcs.length();
+        if (distToW < dist[w]) {
+          if (dist[w] == Integer.MAX_VALUE)
+            F.add(w, distToW);
+          else
+            F.updatePriority(w, distToW);
+          dist[w]= distToW;
+          backPointer[w]= f;
+        }
+      }
+    }
+
+    return new int[0]; // no path found
+  }
+
+  /** Return the indices of the nodes on the path from the start node to node
+   *  end. Precondition: backPointer gives the predecessor of each node on the
+   *  path, and -1 for the start node. */
+  private static int[] constructPath(int end, int[] backPointer) {
+    int length= 0;
+    for (int p= end; p != -1; p= backPointer[p]) {
+      length++;
+    }
+    int[] path= new int[length];
+    for (int p= end; p != -1; p= backPointer[p]) {
+      path[--length]= p;
+    }
+    return path;
+  }
+
   /** Return a list of the nodes on the shortest path from start to end, or the
    *  empty list if a path does not exist. Note: The empty list is NOT "null";
    *  it is a list with 0 elements. */
@@ -66,6 +124,8 @@ public class PathFunctions {
     // Base case
     if(start == end) return path;
     
+    // The neighbors must be visited in getNeighbors() order: ties in the heap
+    // go to the node added first, and board generation depends on the result.
     HashMap<Node, Integer> neighbors = start.getNeighbors();
     Heap<Node> h = new Heap<Node>();
     // Add nodes to heap in sorted order with max at top.
@@ -131,6 +191,87 @@ public class PathFunctions {
     }
   }
 
+  /** An instance is a min heap of ints in 0..n-1 with int priorities, kept in
+   *  primitive arrays. */
+  private static class IntHeap {
+    private final int[] items; // items[0..size-1] is the heap
+    private final int[] priority; // priority[v] is the priority of item v
+    private final int[] index; // index[v] is the position of v in items
+    private int size;
+
+    /** Constructor: an empty heap for items 0..n-1. */
+    private IntHeap(int n) {
+      items= new int[n];
+      priority= new int[n];
+      index= new int[n];
+    }
+
+    /** Return the number of items in this heap. */
+    private int size() {
+      return size;
+    }
+
+    /** Add item v with priority p. Precondition: v is not in the heap. */
+    private void add(int v, int p) {
+      items[size]= v;
+      index[v]= size;
+      priority[v]= p;
+      size++;
+      bubbleUp(size - 1);
+    }
+
+    /** Remove and return the item with the smallest priority.
+     *  Precondition: the heap is not empty. */
+    private int poll() {
+      int v= items[0];
+      size--;
+      if (size > 0) {
+        items[0]= items[size];
+        index[items[0]]= 0;
+        bubbleDown(0);
+      }
+      return v;
+    }
+
+    /** Lower the priority of v to p. Precondition: v is in the heap and
+     *  p <= its priority. */
+    private void updatePriority(int v, int p) {
+      priority[v]= p;
+      bubbleUp(index[v]);
+    }
+
+    /** Bubble the item at position k up to its place. */
+    private void bubbleUp(int k) {
+      int v= items[k];
+      while (k > 0) {
+        int parent= (k - 1) / 2;
+        int u= items[parent];
+        if (priority[u] <= priority[v]) break;
+        items[k]= u;
+        index[u]= k;
+        k= parent;
+      }
+      items[k]= v;
+      index[v]= k;
+    }
+
+    /** Bubble the item at position k down to its place. */
+    private void bubbleDown(int k) {
+      int v= items[k];
+      while (2 * k + 1 < size) {
+        int c= 2 * k + 1;
+        if (c + 1 < size && priority[items[c + 1]] < priority[items[c]]) c++;
+        int u= items[c];
+        if (priority[v] <= priority[u]) break;
+        items[k]= u;
+        index[u]= k;
+        k= c;
+      }
+      items[k]= v;
+      index[v]= k;
+    }
+  }
+
   /** An instance contains information about a node: the previous node on a
    *  shortest path from the start node to this node and the distance of this
    *  node from the start node. */
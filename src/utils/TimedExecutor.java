@@ -0,0 +1,324 @@
+package utils;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/** An instance runs tasks with a time limit on a small pool of daemon
+ *  threads. Any number of games can share one instance: tasks that find
+ *  every thread busy wait in a queue, and a task's time limit only starts
+ *  once a thread has picked it up, so however long it waits in the queue,
+ *  and so however loaded the machine, it is only charged for its own run.
+ *  The queue always drains, since every running task either ends or is
+ *  abandoned when its own time is up (see below). <br>
+ *  <br>
+ *  Threads are created on demand and die after a minute without work, so an
+ *  idle instance holds no threads at all. A task that times out is
+ *  abandoned: it is cancelled, which interrupts its thread, and the instance
+ *  stops counting that thread as one of its threads until the task ends,
+ *  starting another in its place if there is work queued. So a task that
+ *  ignores interrupts and never ends cannot hold up other tasks. It does keep
+ *  its own thread, and the memory it holds, for as long as it runs: each
+ *  such task costs a thread, and nothing can reclaim it short of ending the
+ *  JVM. */
+public class TimedExecutor {
+  /** How often a task with a CPU-time limit has its CPU time read, in ms. */
+  private static final long CPU_POLL_MILLIS= 10;
+
+  /** The JVM's thread bean. (ManagementFactory.getThreadMXBean() allocates
+   *  on every call, which would distort the allocation it is used to
+   *  measure, so it is called once.) */
+  private static final ThreadMXBean MX= ManagementFactory.getThreadMXBean();
+
+  /** How long an idle thread waits for work before it dies, in seconds. */
+  private static final long KEEP_ALIVE= 60;
+
+  /** The instance shared by all games, with one thread per processor. */
+  private static final TimedExecutor shared=
+      new TimedExecutor(Runtime.getRuntime().availableProcessors(), "game-worker");
+
+  private final ThreadPoolExecutor pool;
+
+  private final int threads; // The number of threads, not counting abandoned ones
+
+  private int abandoned; // The number of abandoned tasks still running; guarded by this
+
+  /** Constructor: an instance with at most threads threads, apart from the
+   *  threads of abandoned tasks, named name-1, name-2, ...
+   *  Precondition: threads > 0. */
+  public TimedExecutor(int threads, final String name) {
+    this.threads= threads;
+    ThreadFactory factory= new ThreadFactory() {
+      private final AtomicInteger count= new AtomicInteger();
+
+      @Override
+      public Thread newThread(Runnable r) {
+        Thread t= new Thread(r, name + "-" + count.incrementAndGet());
+        t.setDaemon(true);
+        return t;
+      }
+    };
+    pool= new ThreadPoolExecutor(threads, Integer.MAX_VALUE, KEEP_ALIVE, TimeUnit.SECONDS,
+        new LinkedBlockingQueue<Runnable>(), factory);
+    pool.allowCoreThreadTimeOut(true);
+  }
+
+  /** Return the instance shared by all games. */
+  public static TimedExecutor shared() {
+    return shared;
+  }
+
+  /** Queue fun to be run and return the Task that runs it. */
+  public <T> Task<T> submit(Callable<T> fun) {
+    Task<T> t= new Task<T>(this, fun);
+    pool.execute(t);
+    return t;
+  }
+
+  /** Return the number of threads currently in this instance, including the
+   *  threads of abandoned tasks. */
+  public int getPoolSize() {
+    return pool.getPoolSize();
+  }
+
+  /** Return the number of abandoned tasks that are still running. */
+  public synchronized int getAbandoned() {
+    return abandoned;
+  }
+
+  /** Stop counting the thread of abandoned task t as one of this instance's
+   *  threads, unless t already ended. */
+  private synchronized void abandoned(Task<?> t) {
+    if (t.phase.compareAndSet(Task.RUNNING, Task.ABANDONED)) {
+      abandoned++;
+      pool.setCorePoolSize(threads + abandoned);
+    }
+  }
+
+  /** Note that task t ended, counting its thread again if t was abandoned. */
+  private synchronized void ended(Task<?> t) {
+    if (!t.phase.compareAndSet(Task.RUNNING, Task.ENDED)) {
+      abandoned--;
+      pool.setCorePoolSize(threads + abandoned);
+    }
+  }
+
+  /** Stop accepting tasks. Queued and running tasks still complete. */
+  public void shutdown() {
+    pool.shutdown();
+  }
+
+  /** Return true iff this JVM can measure the CPU time of a thread. The
+   *  measurement may still be off: see enableCpuTime(). */
+  public static boolean cpuTimeSupported() {
+    return MX.isThreadCpuTimeSupported();
+  }
+
+  /** Turn on the measurement of thread CPU time, for the whole JVM, if it is
+   *  supported and off. Return true iff it is on now. */
+  public static boolean enableCpuTime() {
+    if (!cpuTimeSupported())
+      return false;
+    if (!MX.isThreadCpuTimeEnabled())
+      MX.setThreadCpuTimeEnabled(true);
+    return true;
+  }
+
+  /** Return true iff this JVM can measure the bytes a thread allocates. The
+   *  measurement may still be off: see enableAllocation(). */
+  public static boolean allocationSupported() {
+    return MX instanceof com.sun.management.ThreadMXBean
+        && ((com.sun.management.ThreadMXBean) MX).isThreadAllocatedMemorySupported();
+  }
+
+  /** Turn on the measurement of the bytes threads allocate, for the whole
+   *  JVM, if it is supported and off. Return true iff it is on now. */
+  public static boolean enableAllocation() {
+    if (!allocationSupported())
+      return false;
+    com.sun.management.ThreadMXBean mx= (com.sun.management.ThreadMXBean) MX;
+    if (!mx.isThreadAllocatedMemoryEnabled())
+      mx.setThreadAllocatedMemoryEnabled(true);
+    return true;
+  }
+
+  /** Return the number of bytes the current thread has allocated since it
+   *  started, or -1 if that cannot be measured. */
+  public static long currentThreadAllocatedBytes() {
+    if (!(MX instanceof com.sun.management.ThreadMXBean))
+      return -1;
+    return ((com.sun.management.ThreadMXBean) MX).getCurrentThreadAllocatedBytes();
+  }
+
+  /** Return the CPU time the current thread has used, in ns, or -1 if that
+   *  cannot be measured. */
+  public static long currentThreadCpuTime() {
+    return MX.isCurrentThreadCpuTimeSupported() ? MX.getCurrentThreadCpuTime() : -1;
+  }
+
+  /** A task of a TimedExecutor: a FutureTask that knows when it started and
+   *  how much wall-clock time, CPU time and memory it has used. */
+  public static class Task<T> extends FutureTask<T> {
+    /* Values of phase */
+    private static final int RUNNING= 0; // Queued or running
+    private static final int ENDED= 1; // Ended without being abandoned
+    private static final int ABANDONED= 2; // Abandoned before it ended
+
+    private final TimedExecutor owner; // The instance that runs this task
+    private final CountDownLatch started= new CountDownLatch(1);
+    private final AtomicInteger phase= new AtomicInteger(RUNNING);
+
+    private volatile Thread runner; // The thread running this task, once started
+    private volatile long wallStart; // System.nanoTime() when this task started
+    private volatile long cpuStart; // CPU time of runner then, in ns; -1 if unknown
+    private volatile long wallTime= -1; // Wall time used, once finished
+    private volatile long cpuTime= -1; // CPU time used, once finished
+    private volatile long allocStart; // Bytes runner had allocated then; -1 if unknown
+    private volatile long allocated= -1; // Bytes allocated, once finished
+
+    /** Constructor: a task of e that runs fun. */
+    private Task(TimedExecutor e, Callable<T> fun) {
+      super(fun);
+      owner= e;
+    }
+
+    @Override
+    public void run() {
+      runner= Thread.currentThread();
+      cpuStart= currentThreadCpuTime();
+      allocStart= currentThreadAllocatedBytes();
+      wallStart= System.nanoTime();
+      started.countDown();
+      try {
+        super.run();
+      } finally {
+        wallTime= System.nanoTime() - wallStart;
+        if (cpuStart >= 0)
+          cpuTime= currentThreadCpuTime() - cpuStart;
+        if (allocStart >= 0)
+          allocated= currentThreadAllocatedBytes() - allocStart;
+        runner= null;
+        owner.ended(this);
+      }
+    }
+
+    /** Return the wall-clock time this task has run for so far (all of it if
+     *  it finished), in ns, or 0 if it has not started. */
+    public long getWallTime() {
+      long w= wallTime;
+      if (w >= 0)
+        return w;
+      return runner == null ? 0 : System.nanoTime() - wallStart;
+    }
+
+    /** Return the CPU time this task has used so far (all of it if it
+     *  finished), in ns, or 0 if it has not started, or -1 if CPU time
+     *  cannot be measured. */
+    public long getCpuTime() {
+      long c= cpuTime;
+      if (c >= 0)
+        return c;
+      if (cpuStart < 0)
+        return -1;
+      Thread r= runner;
+      if (r == null)
+        return 0;
+      long now= MX.getThreadCpuTime(r.getId());
+      return now < 0 ? -1 : now - cpuStart;
+    }
+
+    /** Return the number of bytes this task has allocated so far (all of
+     *  them if it finished), or 0 if it has not started, or -1 if allocation
+     *  cannot be measured. */
+    public long getAllocatedBytes() {
+      long a= allocated;
+      if (a >= 0)
+        return a;
+      if (allocStart < 0)
+        return -1;
+      Thread r= runner;
+      if (r == null)
+        return 0;
+      long now= ((com.sun.management.ThreadMXBean) MX).getThreadAllocatedBytes(r.getId());
+      return now < 0 ? -1 : now - allocStart;
+    }
+
+    /** Wait, without a time limit, until this task starts or is cancelled.
+     *  If the waiting thread is interrupted, abandon this task, so that it
+     *  never runs, and throw an InterruptedException. */
+    private void awaitStart() throws InterruptedException {
+      try {
+        started.await();
+      } catch (InterruptedException e) {
+        abandon();
+        throw e;
+      }
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+      boolean cancelled= super.cancel(mayInterruptIfRunning);
+      started.countDown();
+      return cancelled;
+    }
+
+    /** Cancel this task, interrupting its thread, and stop counting that
+     *  thread against its TimedExecutor until the task ends, so that a task
+     *  that ignores the interrupt does not take a thread from other tasks. */
+    public void abandon() {
+      cancel(true);
+      owner.abandoned(this);
+    }
+
+    /** Wait for this task to start, however long that takes, then wait at
+     *  most timeout for its result and return it. If it does not finish in
+     *  time, abandon it and throw a TimeoutException. If the waiting thread is
+     *  interrupted, abandon it and throw an InterruptedException. Other
+     *  exceptions are as for get(). */
+    public T await(long timeout, TimeUnit unit)
+        throws InterruptedException, ExecutionException, TimeoutException {
+      awaitStart();
+      try {
+        return get(timeout, unit);
+      } catch (TimeoutException e) {
+        abandon();
+        throw e;
+      }
+    }
+
+    /** Wait for this task to start, however long that takes, then wait for
+     *  its result and return it, as long as it uses at most cpu of CPU time
+     *  and at most wall of wall-clock time (so that a task that blocks cannot
+     *  run forever). If it passes either limit, abandon it and throw a
+     *  TimeoutException. If the waiting thread is interrupted, abandon it and
+     *  throw an InterruptedException. Other exceptions are as for get().
+     *  Precondition: CPU time is measured (see enableCpuTime()). */
+    public T awaitCpu(long cpu, long wall, TimeUnit unit)
+        throws InterruptedException, ExecutionException, TimeoutException {
+      awaitStart();
+      long cpuLimit= unit.toNanos(cpu);
+      long wallEnd= System.nanoTime() + unit.toNanos(wall);
+      while (true) {
+        long left= wallEnd - System.nanoTime();
+        try {
+          return get(Math.min(left, TimeUnit.MILLISECONDS.toNanos(CPU_POLL_MILLIS)),
+              TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+          if (getCpuTime() > cpuLimit || wallEnd - System.nanoTime() <= 0) {
+            abandon();
+            throw e;
+          }
+        }
+      }
+    }
+  }
+}
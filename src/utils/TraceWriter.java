@@ -0,0 +1,161 @@
+package utils;
+
+import java.io.Closeable;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/** An instance writes text to a channel through one large direct buffer,
+ *  which is only written out when it fills up, on flush() and on close().
+ *  Longs, ints and integral doubles are formatted straight into the buffer
+ *  without allocating; other doubles go through Double.toString, which
+ *  allocates a String per value. Text is written as UTF-8. <br>
+ *  <br>
+ *  An instance is not thread-safe. I/O errors are thrown as
+ *  UncheckedIOExceptions. */
+public class TraceWriter implements Closeable {
+  /** The default size of the buffer, in bytes. */
+  public static final int DEFAULT_BUFFER_SIZE= 1 << 20;
+
+  private final WritableByteChannel channel;
+  private final ByteBuffer buf;
+  private final byte[] digits= new byte[20]; // Scratch space for a long
+
+  /** Constructor: an instance writing to ch through a buffer of size
+   *  bufferSize. Precondition: bufferSize >= 64. */
+  public TraceWriter(WritableByteChannel ch, int bufferSize) {
+    channel= ch;
+    buf= ByteBuffer.allocateDirect(bufferSize);
+  }
+
+  /** Return an instance writing to the standard output stream. */
+  public static TraceWriter toStdout() {
+    return new TraceWriter(Channels.newChannel(new FileOutputStream(FileDescriptor.out)),
+        DEFAULT_BUFFER_SIZE);
+  }
+
+  /** Return an instance writing to file f, which is created or truncated. */
+  public static TraceWriter toFile(Path f) throws IOException {
+    return new TraceWriter(FileChannel.open(f, StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING), DEFAULT_BUFFER_SIZE);
+  }
+
+  /** Make room for n more bytes, writing the buffer out if needed. */
+  private void reserve(int n) {
+    if (buf.remaining() < n)
+      flushBuffer();
+  }
+
+  /** Write s. */
+  public TraceWriter print(String s) {
+    int n= s.length();
+    for (int i= 0; i < n; i++) {
+      char c= s.charAt(i);
+      if (c >= 0x80) {
+        printBytes(s.substring(i).getBytes(StandardCharsets.UTF_8));
+        return this;
+      }
+      reserve(1);
+      buf.put((byte) c);
+    }
+    return this;
+  }
+
+  /** Write the bytes of b. */
+  private void printBytes(byte[] b) {
+    int off= 0;
+    while (off < b.length) {
+      reserve(1);
+      int n= Math.min(buf.remaining(), b.length - off);
+      buf.put(b, off, n);
+      off += n;
+    }
+  }
+
+  /** Write c, which must be an ASCII character. */
+  public TraceWriter print(char c) {
+    reserve(1);
+    buf.put((byte) c);
+    return this;
+  }
+
+  /** Write v in decimal. */
+  public TraceWriter print(long v) {
+    if (v == Long.MIN_VALUE)
+      return print(Long.toString(v));
+    reserve(21);
+    if (v < 0) {
+      buf.put((byte) '-');
+      v= -v;
+    }
+    int n= 0;
+    do {
+      digits[n++]= (byte) ('0' + v % 10);
+      v /= 10;
+    } while (v != 0);
+    while (n > 0) {
+      buf.put(digits[--n]);
+    }
+    return this;
+  }
+
+  /** Write v, as an integer if it is one and as Double.toString does
+   *  otherwise. */
+  public TraceWriter print(double v) {
+    if (v == (long) v && Math.abs(v) < 1e15)
+      return print((long) v);
+    return print(Double.toString(v));
+  }
+
+  /** Write a tab. */
+  public TraceWriter tab() {
+    return print('\t');
+  }
+
+  /** Write a line separator. */
+  public TraceWriter newline() {
+    return print('\n');
+  }
+
+  /** Write s and a line separator. */
+  public TraceWriter println(String s) {
+    return print(s).newline();
+  }
+
+  /** Write out the buffer. */
+  private void flushBuffer() {
+    buf.flip();
+    try {
+      while (buf.hasRemaining()) {
+        channel.write(buf);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    buf.clear();
+  }
+
+  /** Write out everything written so far. */
+  public void flush() {
+    flushBuffer();
+  }
+
+  /** Write out everything written so far and close the channel. */
+  @Override
+  public void close() {
+    flushBuffer();
+    try {
+      channel.close();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
@@ -0,0 +1,86 @@
+package utils.collections;
+
+import java.util.Arrays;
+
+/** An instance is a set of non-negative ints kept as a bitmap that grows as
+ *  larger ints are added. Unlike java.util.BitSet it does no bounds or
+ *  invariant bookkeeping beyond what each operation needs. */
+public class GrowableBitSet {
+
+  private long[] words; // Bit i is bit (i % 64) of words[i / 64]
+
+  /** Constructor: an empty set with room for 0..nbits-1 before growing. */
+  public GrowableBitSet(int nbits) {
+    words= new long[Math.max(1, (nbits + 63) >>> 6)];
+  }
+
+  /** Constructor: an empty set. */
+  public GrowableBitSet() {
+    this(64);
+  }
+
+  /** Return true iff i is in this set. Precondition: i >= 0. */
+  public boolean get(int i) {
+    int w= i >>> 6;
+    return w < words.length && (words[w] & (1L << i)) != 0;
+  }
+
+  /** Add i to this set. Precondition: i >= 0. */
+  public void set(int i) {
+    int w= i >>> 6;
+    if (w >= words.length) words= Arrays.copyOf(words, Math.max(2 * words.length, w + 1));
+    words[w] |= 1L << i;
+  }
+
+  /** Add i to this set if b is true; remove it otherwise. */
+  public void set(int i, boolean b) {
+    if (b) set(i);
+    else clear(i);
+  }
+
+  /** Remove i from this set. Precondition: i >= 0. */
+  public void clear(int i) {
+    int w= i >>> 6;
+    if (w < words.length) words[w] &= ~(1L << i);
+  }
+
+  /** Remove every element from this set. */
+  public void clear() {
+    Arrays.fill(words, 0);
+  }
+
+  /** Return the number of elements in this set. */
+  public int cardinality() {
+    int n= 0;
+    for (long w : words) {
+      n += Long.bitCount(w);
+    }
+    return n;
+  }
+
+  /** Return the smallest element of this set that is >= from, or -1 if there
+   *  is none. Precondition: from >= 0. */
+  public int nextSetBit(int from) {
+    int w= from >>> 6;
+    if (w >= words.length) return -1;
+    long word= words[w] & (-1L << from);
+    while (true) {
+      if (word != 0) return (w << 6) + Long.numberOfTrailingZeros(word);
+      if (++w == words.length) return -1;
+      word= words[w];
+    }
+  }
+
+  /** Return the number of ints, 0 and up, this set has room for before
+   *  growing. */
+  public int capacity() {
+    return words.length << 6;
+  }
+
+  /** Return a copy of this set. */
+  public GrowableBitSet copy() {
+    GrowableBitSet s= new GrowableBitSet(0);
+    s.words= words.clone();
+    return s;
+  }
+}
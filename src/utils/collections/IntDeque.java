@@ -0,0 +1,90 @@
+package utils.collections;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/** An instance is a double-ended queue of ints, kept in a growable circular
+ *  array so that no element is ever boxed. */
+public class IntDeque {
+
+  private int[] elements; // The elements, circularly from index head
+  private int head; // Index of the first element
+  private int size; // Number of elements
+
+  /** Constructor: an empty deque. */
+  public IntDeque() {
+    elements= new int[16];
+  }
+
+  /** Return the number of elements in this deque. */
+  public int size() {
+    return size;
+  }
+
+  /** Return true iff this deque is empty. */
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /** Add v at the front of this deque. */
+  public void addFirst(int v) {
+    fixSpace();
+    head= (head - 1) & (elements.length - 1);
+    elements[head]= v;
+    size++;
+  }
+
+  /** Add v at the back of this deque. */
+  public void addLast(int v) {
+    fixSpace();
+    elements[(head + size) & (elements.length - 1)]= v;
+    size++;
+  }
+
+  /** Return the element at the front of this deque without removing it.
+   *  Throw a NoSuchElementException if the deque is empty. */
+  public int peekFirst() {
+    if (size == 0) throw new NoSuchElementException("deque is empty");
+    return elements[head];
+  }
+
+  /** Return the element at the back of this deque without removing it.
+   *  Throw a NoSuchElementException if the deque is empty. */
+  public int peekLast() {
+    if (size == 0) throw new NoSuchElementException("deque is empty");
+    return elements[(head + size - 1) & (elements.length - 1)];
+  }
+
+  /** Remove and return the element at the front of this deque.
+   *  Throw a NoSuchElementException if the deque is empty. */
+  public int pollFirst() {
+    int v= peekFirst();
+    head= (head + 1) & (elements.length - 1);
+    size--;
+    return v;
+  }
+
+  /** Remove and return the element at the back of this deque.
+   *  Throw a NoSuchElementException if the deque is empty. */
+  public int pollLast() {
+    int v= peekLast();
+    size--;
+    return v;
+  }
+
+  /** Remove all elements from this deque. */
+  public void clear() {
+    head= 0;
+    size= 0;
+  }
+
+  /** If the array is full, double its length, unrolling the elements to
+   *  start at index 0. */
+  private void fixSpace() {
+    if (size < elements.length) return;
+    int[] newElements= Arrays.copyOfRange(elements, head, head + 2 * elements.length);
+    System.arraycopy(elements, 0, newElements, elements.length - head, head);
+    elements= newElements;
+    head= 0;
+  }
+}
@@ -0,0 +1,53 @@
+package utils.collections;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/** An instance is a stack of ints, kept in a growable array so that no
+ *  element is ever boxed. */
+public class IntStack {
+
+  private int[] elements; // elements[0..size-1] are the elements; top last
+  private int size; // Number of elements
+
+  /** Constructor: an empty stack. */
+  public IntStack() {
+    elements= new int[16];
+  }
+
+  /** Return the number of elements on this stack. */
+  public int size() {
+    return size;
+  }
+
+  /** Return true iff this stack is empty. */
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /** Push v onto this stack. */
+  public void push(int v) {
+    if (size == elements.length) elements= Arrays.copyOf(elements, 2 * size);
+    elements[size++]= v;
+  }
+
+  /** Return the top of this stack without removing it.
+   *  Throw a NoSuchElementException if the stack is empty. */
+  public int peek() {
+    if (size == 0) throw new NoSuchElementException("stack is empty");
+    return elements[size - 1];
+  }
+
+  /** Remove and return the top of this stack.
+   *  Throw a NoSuchElementException if the stack is empty. */
+  public int pop() {
+    int v= peek();
+    size--;
+    return v;
+  }
+
+  /** Remove all elements from this stack. */
+  public void clear() {
+    size= 0;
+  }
+}
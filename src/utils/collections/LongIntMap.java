@@ -0,0 +1,51 @@
+package utils.collections;
+
+/** An instance is a hash map from long keys to int values. It is a LongLongMap
+ *  whose values are always ints, so it shares that class's probing and
+ *  deletion and, like it, never boxes keys or values. Any long may be a key;
+ *  the value returned for absent keys is chosen when the map is created. */
+public class LongIntMap {
+
+  private final LongLongMap map; // Holds the entries, values widened to long
+
+  /** Constructor: an empty map whose get returns noValue for absent keys. */
+  public LongIntMap(int noValue) {
+    map= new LongLongMap(noValue);
+  }
+
+  /** Return the number of entries in this map. */
+  public int size() {
+    return map.size();
+  }
+
+  /** Return true iff this map has no entries. */
+  public boolean isEmpty() {
+    return map.isEmpty();
+  }
+
+  /** Return true iff key is a key of this map. */
+  public boolean containsKey(long key) {
+    return map.containsKey(key);
+  }
+
+  /** Return the value of key, or the map's noValue if key is absent. */
+  public int get(long key) {
+    return (int) map.get(key);
+  }
+
+  /** Map key to value. Return the previous value of key, or noValue. */
+  public int put(long key, int value) {
+    return (int) map.put(key, value);
+  }
+
+  /** Remove key from this map. Return its value, or noValue if it was
+   *  absent. */
+  public int remove(long key) {
+    return (int) map.remove(key);
+  }
+
+  /** Remove all entries from this map. */
+  public void clear() {
+    map.clear();
+  }
+}
@@ -0,0 +1,143 @@
+package utils.collections;
+
+import java.util.Arrays;
+
+/** An instance is a hash map from long keys to long values that stores both
+ *  in primitive arrays (open addressing with linear probing), so neither keys
+ *  nor values are ever boxed. Any long, including EMPTY, may be a key; the
+ *  value returned for absent keys is chosen when the map is created. */
+public class LongLongMap {
+
+  /* Marks an empty slot in keys. The key EMPTY itself is stored separately. */
+  private static final long EMPTY= Long.MIN_VALUE;
+
+  private long[] keys; // keys[i] is the key in slot i, or EMPTY
+  private long[] values; // values[i] is the value of keys[i]
+  private int size; // Number of entries, including the EMPTY key if present
+
+  private boolean hasEmptyKey; // True iff EMPTY is a key of this map
+  private long emptyKeyValue; // The value of key EMPTY, if present
+
+  private final long noValue; // The value get returns for an absent key
+
+  /** Constructor: an empty map whose get returns noValue for absent keys. */
+  public LongLongMap(long noValue) {
+    this.noValue= noValue;
+    keys= new long[16];
+    values= new long[16];
+    Arrays.fill(keys, EMPTY);
+  }
+
+  /** Return the number of entries in this map. */
+  public int size() {
+    return size;
+  }
+
+  /** Return true iff this map has no entries. */
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /** Return true iff key is a key of this map. */
+  public boolean containsKey(long key) {
+    if (key == EMPTY) return hasEmptyKey;
+    return keys[slot(key)] == key;
+  }
+
+  /** Return the value of key, or the map's noValue if key is absent. */
+  public long get(long key) {
+    if (key == EMPTY) return hasEmptyKey ? emptyKeyValue : noValue;
+    int i= slot(key);
+    return keys[i] == key ? values[i] : noValue;
+  }
+
+  /** Map key to value. Return the previous value of key, or noValue. */
+  public long put(long key, long value) {
+    if (key == EMPTY) {
+      long old= hasEmptyKey ? emptyKeyValue : noValue;
+      if (!hasEmptyKey) size++;
+      hasEmptyKey= true;
+      emptyKeyValue= value;
+      return old;
+    }
+    int i= slot(key);
+    if (keys[i] == key) {
+      long old= values[i];
+      values[i]= value;
+      return old;
+    }
+    keys[i]= key;
+    values[i]= value;
+    size++;
+    if (size > keys.length / 2) resize(2 * keys.length);
+    return noValue;
+  }
+
+  /** Remove key from this map. Return its value, or noValue if it was
+   *  absent. */
+  public long remove(long key) {
+    if (key == EMPTY) {
+      if (!hasEmptyKey) return noValue;
+      hasEmptyKey= false;
+      size--;
+      return emptyKeyValue;
+    }
+    int i= slot(key);
+    if (keys[i] != key) return noValue;
+    long old= values[i];
+    // Backward-shift deletion: move later entries of the probe run into the
+    // hole so that no lookup stops early at an empty slot.
+    int mask= keys.length - 1;
+    int hole= i;
+    for (int j= (i + 1) & mask; keys[j] != EMPTY; j= (j + 1) & mask) {
+      int home= hash(keys[j]) & mask;
+      if (((j - home) & mask) >= ((j - hole) & mask)) {
+        keys[hole]= keys[j];
+        values[hole]= values[j];
+        hole= j;
+      }
+    }
+    keys[hole]= EMPTY;
+    size--;
+    return old;
+  }
+
+  /** Remove all entries from this map. */
+  public void clear() {
+    Arrays.fill(keys, EMPTY);
+    hasEmptyKey= false;
+    size= 0;
+  }
+
+  /** Return the slot holding key, or the empty slot where it would go.
+   *  Precondition: key != EMPTY. */
+  private int slot(long key) {
+    int mask= keys.length - 1;
+    int i= hash(key) & mask;
+    while (keys[i] != EMPTY && keys[i] != key) {
+      i= (i + 1) & mask;
+    }
+    return i;
+  }
+
+  /** Return a hash of key with its bits spread over the whole int. */
+  private static int hash(long key) {
+    return Long.hashCode(key * 0x9E3779B97F4A7C15L);
+  }
+
+  /** Rehash all entries into tables of capacity cap (a power of 2). */
+  private void resize(int cap) {
+    long[] oldKeys= keys;
+    long[] oldValues= values;
+    keys= new long[cap];
+    values= new long[cap];
+    Arrays.fill(keys, EMPTY);
+    for (int j= 0; j < oldKeys.length; j++) {
+      if (oldKeys[j] != EMPTY) {
+        int i= slot(oldKeys[j]);
+        keys[i]= oldKeys[j];
+        values[i]= oldValues[j];
+      }
+    }
+  }
+}